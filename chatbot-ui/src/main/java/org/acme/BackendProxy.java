@@ -0,0 +1,212 @@
+package org.acme;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.http.ServerWebSocket;
+import io.vertx.core.http.WebSocket;
+import io.vertx.core.http.WebSocketClient;
+import io.vertx.core.http.WebSocketClientOptions;
+import io.vertx.core.http.WebSocketConnectOptions;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import java.net.URI;
+import java.util.Optional;
+
+/**
+ * Proxies {@code /chat} and {@code /websocket-chat} to the drools-quarkus-airline
+ * backend, so browsers only ever talk to this server.
+ *
+ * REST calls share a pool of keep-alive connections to the backend. Each browser
+ * WebSocket is bridged to its own backend WebSocket, and the backend close code is
+ * passed through so the client can back off when it is told to. With
+ * {@code backend.service.proxy-token} set, the backend WebSocket also carries the
+ * browser address and the token, so the backend applies its per-IP limit to the
+ * browser rather than to this server.
+ */
+@ApplicationScoped
+public class BackendProxy {
+
+    private static final Logger LOG = Logger.getLogger(BackendProxy.class);
+
+    private static final String TENANT_HEADER = "X-Airline-Tenant";
+    private static final String SESSION_HEADER = "X-Chat-Session";
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    private static final String CLIENT_ADDRESS_HEADER = "X-Airline-Client-Address";
+    private static final String PROXY_TOKEN_HEADER = "X-Airline-Proxy-Token";
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "backend.service.url")
+    String backendUrl;
+
+    @ConfigProperty(name = "backend.service.pool-size", defaultValue = "20")
+    int poolSize;
+
+    @ConfigProperty(name = "backend.service.timeout-ms", defaultValue = "60000")
+    long timeoutMs;
+
+    @ConfigProperty(name = "backend.service.proxy-token")
+    Optional<String> proxyToken;
+
+    @ConfigProperty(name = "backend.service.trusted-proxies", defaultValue = "1")
+    int trustedProxies;
+
+    private HttpClient httpClient;
+    private WebSocketClient webSocketClient;
+    private String host;
+    private int port;
+    private boolean ssl;
+
+    void init(@Observes Router router) {
+        URI backend = URI.create(backendUrl);
+        ssl = "https".equals(backend.getScheme());
+        host = backend.getHost();
+        port = backend.getPort() != -1 ? backend.getPort() : (ssl ? 443 : 80);
+
+        httpClient = vertx.createHttpClient(new HttpClientOptions()
+            .setKeepAlive(true)
+            .setMaxPoolSize(poolSize)
+            .setSsl(ssl));
+        webSocketClient = vertx.createWebSocketClient(new WebSocketClientOptions()
+            .setSsl(ssl));
+
+        router.post("/chat").handler(this::proxyChat);
+        router.get("/websocket-chat").handler(this::proxyWebSocket);
+        LOG.info("Proxying chat requests to " + backendUrl);
+    }
+
+    private void proxyChat(RoutingContext ctx) {
+        HttpServerRequest request = ctx.request();
+        RequestOptions options = new RequestOptions()
+            .setMethod(HttpMethod.POST)
+            .setHost(host)
+            .setPort(port)
+            .setSsl(ssl)
+            .setURI("/chat")
+            .setIdleTimeout(timeoutMs)
+            .putHeader(FORWARDED_FOR, forwardedFor(request));
+        copyHeader(request, options, HttpHeaders.CONTENT_TYPE.toString());
+        copyHeader(request, options, TENANT_HEADER);
+        copyHeader(request, options, SESSION_HEADER);
+
+        request.body()
+            .compose(body -> httpClient.request(options).compose(backendRequest -> backendRequest.send(body)))
+            .compose(backendResponse -> backendResponse.body().onSuccess(body -> reply(ctx, backendResponse, body)))
+            .onFailure(e -> {
+                LOG.error("Backend /chat call failed: " + e.getMessage());
+                if (!ctx.response().ended()) {
+                    ctx.response().setStatusCode(502).end("The chat service is unavailable, please try again.");
+                }
+            });
+    }
+
+    private void reply(RoutingContext ctx, HttpClientResponse backendResponse, Buffer body) {
+        String contentType = backendResponse.getHeader(HttpHeaders.CONTENT_TYPE);
+        if (contentType != null) {
+            ctx.response().putHeader(HttpHeaders.CONTENT_TYPE, contentType);
+        }
+        ctx.response().setStatusCode(backendResponse.statusCode()).end(body);
+    }
+
+    private void proxyWebSocket(RoutingContext ctx) {
+        HttpServerRequest request = ctx.request();
+        String query = request.query();
+        WebSocketConnectOptions options = new WebSocketConnectOptions()
+            .setHost(host)
+            .setPort(port)
+            .setSsl(ssl)
+            .setURI("/websocket-chat" + (query != null ? "?" + query : ""))
+            .putHeader(FORWARDED_FOR, forwardedFor(request));
+        String tenant = request.getHeader(TENANT_HEADER);
+        if (tenant != null) {
+            options.putHeader(TENANT_HEADER, tenant);
+        }
+        proxyToken.ifPresent(token -> options
+            .putHeader(CLIENT_ADDRESS_HEADER, clientAddress(request))
+            .putHeader(PROXY_TOKEN_HEADER, token));
+
+        request.toWebSocket().onSuccess(client -> {
+            // Hold client frames until the backend side is ready to receive them
+            client.pause();
+            webSocketClient.connect(options)
+                .onSuccess(backend -> {
+                    // The browser may have gone away while the backend was connecting
+                    if (client.isClosed()) {
+                        backend.close();
+                        return;
+                    }
+                    bridge(client, backend);
+                })
+                .onFailure(e -> {
+                    LOG.error("Backend WebSocket connect failed: " + e.getMessage());
+                    client.close((short) 1013, "Chat service unavailable");
+                });
+        });
+    }
+
+    private void bridge(ServerWebSocket client, WebSocket backend) {
+        client.textMessageHandler(backend::writeTextMessage);
+        backend.textMessageHandler(client::writeTextMessage);
+        client.closeHandler(v -> {
+            if (!backend.isClosed()) {
+                backend.close();
+            }
+        });
+        backend.closeHandler(v -> {
+            if (!client.isClosed()) {
+                client.close(closeCode(backend.closeStatusCode()), backend.closeReason());
+            }
+        });
+        client.resume();
+    }
+
+    // 1005 and 1006 describe a missing or abnormal close and may not be sent on the wire
+    private static short closeCode(Short code) {
+        if (code == null || code == 1005 || code == 1006) {
+            return 1001;
+        }
+        return code;
+    }
+
+    private static String forwardedFor(HttpServerRequest request) {
+        String remote = request.remoteAddress() != null ? request.remoteAddress().host() : "unknown";
+        String existing = request.getHeader(FORWARDED_FOR);
+        return existing != null ? existing + ", " + remote : remote;
+    }
+
+    // The browser address: appended to X-Forwarded-For by the router in front of this
+    // server, or the socket peer when nothing trusted is in between
+    private String clientAddress(HttpServerRequest request) {
+        String existing = request.getHeader(FORWARDED_FOR);
+        if (trustedProxies > 0 && existing != null) {
+            String[] hops = existing.split(",");
+            if (hops.length >= trustedProxies) {
+                String client = hops[hops.length - trustedProxies].trim();
+                if (!client.isEmpty()) {
+                    return client;
+                }
+            }
+        }
+        return request.remoteAddress() != null ? request.remoteAddress().host() : "unknown";
+    }
+
+    private static void copyHeader(HttpServerRequest request, RequestOptions options, String name) {
+        String value = request.getHeader(name);
+        if (value != null) {
+            options.putHeader(name, value);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.acme;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.jboss.logging.Logger;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the chat UI from {@code src/main/resources/web}.
+ *
+ * At startup every script is fingerprinted with a hash of its content and compressed
+ * once. Scripts are served from {@code /assets/<name>.<hash>.js} with a one year
+ * immutable cache lifetime, and the pages, which reference the fingerprinted names,
+ * are served with {@code no-cache} so browsers revalidate them with their ETag.
+ */
+@ApplicationScoped
+public class StaticAssets {
+
+    private static final Logger LOG = Logger.getLogger(StaticAssets.class);
+
+    private static final String[] PAGES = {"index.html", "rest.html"};
+    private static final String[] SCRIPTS = {"script.js", "rest.js"};
+
+    private static final String HTML = "text/html; charset=UTF-8";
+    private static final String JAVASCRIPT = "application/javascript; charset=UTF-8";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    private final Map<String, Asset> pages = new HashMap<>();
+    private final Map<String, Asset> assets = new HashMap<>();
+
+    private record Asset(Buffer identity, Buffer gzip, String contentType, String etag, String cacheControl) {
+    }
+
+    void init(@Observes Router router) {
+        Map<String, String> fingerprinted = new HashMap<>();
+        for (String script : SCRIPTS) {
+            byte[] content = read(script);
+            String hash = hash(content);
+            String name = script.substring(0, script.lastIndexOf('.')) + "." + hash + ".js";
+            assets.put(name, asset(content, JAVASCRIPT, hash, IMMUTABLE));
+            fingerprinted.put(script, "/assets/" + name);
+        }
+        for (String page : PAGES) {
+            String html = new String(read(page), StandardCharsets.UTF_8);
+            for (Map.Entry<String, String> script : fingerprinted.entrySet()) {
+                html = html.replace("src=\"" + script.getKey() + "\"", "src=\"" + script.getValue() + "\"");
+            }
+            byte[] content = html.getBytes(StandardCharsets.UTF_8);
+            pages.put(page, asset(content, HTML, hash(content), REVALIDATE));
+        }
+
+        router.get("/").handler(ctx -> serve(ctx, pages.get("index.html")));
+        for (String page : PAGES) {
+            router.get("/" + page).handler(ctx -> serve(ctx, pages.get(page)));
+        }
+        router.get("/assets/:name").handler(ctx -> {
+            Asset asset = assets.get(ctx.pathParam("name"));
+            if (asset == null) {
+                ctx.next();
+            } else {
+                serve(ctx, asset);
+            }
+        });
+    }
+
+    private void serve(RoutingContext ctx, Asset asset) {
+        String acceptEncoding = ctx.request().getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? "\"" + asset.etag() + "-gz\"" : "\"" + asset.etag() + "\"";
+
+        HttpServerResponse response = ctx.response()
+            .putHeader(HttpHeaders.CACHE_CONTROL, asset.cacheControl())
+            .putHeader(HttpHeaders.ETAG, etag)
+            .putHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (etag.equals(ctx.request().getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatusCode(304).end();
+            return;
+        }
+        response.putHeader(HttpHeaders.CONTENT_TYPE, asset.contentType());
+        if (gzip) {
+            response.putHeader(HttpHeaders.CONTENT_ENCODING, "gzip").end(asset.gzip());
+        } else {
+            response.end(asset.identity());
+        }
+    }
+
+    private Asset asset(byte[] content, String contentType, String hash, String cacheControl) {
+        byte[] gzip = gzip(content);
+        LOG.info("Prepared asset " + hash + " (" + contentType + "): " + content.length + " bytes, " + gzip.length + " gzipped");
+        return new Asset(Buffer.buffer(content), Buffer.buffer(gzip), contentType, hash, cacheControl);
+    }
+
+    private static byte[] read(String name) {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream("web/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing UI resource web/" + name);
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
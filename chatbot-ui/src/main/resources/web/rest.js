@@ -0,0 +1,57 @@
+const outputArea = document.getElementById('chat-output');
+const sendButton = document.getElementById('send-button');
+const inputArea = document.getElementById('chat-input');
+// Proxied to drools-quarkus-airline by the chatbot-ui server
+const BACKEND_URL = '/chat';
+// Keeps this tab's conversation apart from other users' on the backend
+const SESSION_ID = sessionStorage.getItem('chat-session') || crypto.randomUUID();
+sessionStorage.setItem('chat-session', SESSION_ID);
+
+async function sendMessage() {
+    const input = inputArea.value.trim();
+    if (!input) return;
+    
+    outputArea.value += 'You: ' + input + '\n';
+    inputArea.value = '';
+    
+    sendButton.disabled = true;
+    sendButton.textContent = 'Sending...';
+    
+    try {
+        const response = await fetch(BACKEND_URL, {
+            method: 'POST',
+            headers: {
+                'Content-Type': 'text/plain',
+                'X-Chat-Session': SESSION_ID
+            },
+            body: input
+        });
+        
+        if (!response.ok) {
+            throw new Error('Server returned ' + response.status);
+        }
+        
+        // 204: this message was answered together with a later one
+        if (response.status !== 204) {
+            const botResponse = await response.text();
+            outputArea.value += 'Bot: ' + botResponse + '\n\n';
+            outputArea.scrollTop = outputArea.scrollHeight;
+        }
+        
+    } catch (error) {
+        outputArea.value += 'Error: ' + error.message + '\n\n';
+    } finally {
+        sendButton.disabled = false;
+        sendButton.textContent = 'Send';
+        inputArea.focus();
+    }
+}
+
+inputArea.addEventListener('keypress', function(e) {
+    if (e.key === 'Enter' && !e.shiftKey) {
+        e.preventDefault();
+        sendMessage();
+    }
+});
+
+inputArea.focus();
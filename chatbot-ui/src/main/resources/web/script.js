@@ -0,0 +1,119 @@
+let socket;
+const outputArea = document.getElementById('chat-output');
+const sendButton = document.getElementById('send-button');
+const inputArea = document.getElementById('chat-input');
+const statusIndicator = document.getElementById('status-indicator');
+
+// Reconnect with exponential backoff and full jitter so that clients dropped at the
+// same moment (e.g. a backend restart) do not all reconnect at the same moment
+const RECONNECT_BASE_MS = 1000;
+const RECONNECT_MAX_MS = 30000;
+// The proxy accepts the browser socket before the backend has admitted it, so an open
+// event alone does not mean the connection worked: the backoff is only reset once the
+// socket has stayed up this long or the backend has sent a message
+const STABLE_CONNECTION_MS = 10000;
+let reconnectAttempts = 0;
+let stableTimer;
+
+let messageBuffer = '';
+let isBotResponding = false;
+
+function reconnectDelay() {
+    const ceiling = Math.min(RECONNECT_MAX_MS, RECONNECT_BASE_MS * Math.pow(2, reconnectAttempts));
+    reconnectAttempts++;
+    return Math.floor(Math.random() * ceiling);
+}
+
+function connectionIsStable() {
+    clearTimeout(stableTimer);
+    reconnectAttempts = 0;
+}
+
+function connectWebSocket() {
+    // Proxied to drools-quarkus-airline by the chatbot-ui server
+    const scheme = location.protocol === 'https:' ? 'wss://' : 'ws://';
+    const url = scheme + location.host + '/websocket-chat' + location.search;
+    console.log('Connecting to WebSocket at: ' + url);
+
+    socket = new WebSocket(url);
+
+    socket.onopen = function(event) {
+        console.log('WebSocket connected:', event);
+        stableTimer = setTimeout(connectionIsStable, STABLE_CONNECTION_MS);
+        outputArea.value = 'Welcome! How can I help you today?\n\n';
+        sendButton.disabled = false;
+        statusIndicator.className = 'status-indicator status-connected';
+        inputArea.focus();
+    };
+
+    socket.onmessage = function(event) {
+        connectionIsStable();
+        const data = event.data;
+
+        if (data.startsWith('Bot: ')) {
+            // A new bot message is starting.
+            messageBuffer = data.substring(5); // Start the buffer with the rest of the string
+            isBotResponding = true;
+            outputArea.value += 'Bot: ' + messageBuffer;
+        } else if (isBotResponding) {
+            // This is a continuation of a bot message
+            messageBuffer += data;
+            const lastBotMessageStart = outputArea.value.lastIndexOf('Bot: ');
+            if (lastBotMessageStart !== -1) {
+                outputArea.value = outputArea.value.substring(0, lastBotMessageStart + 5) + messageBuffer;
+            }
+        } else {
+            // A new bot message is starting without a prefix.
+            // This is a fallback case.
+            messageBuffer = data;
+            isBotResponding = true;
+            outputArea.value += 'Bot: ' + messageBuffer;
+        }
+
+        outputArea.scrollTop = outputArea.scrollHeight;
+        sendButton.disabled = false;
+        sendButton.textContent = 'Send';
+    };
+
+    socket.onclose = function(event) {
+        console.log('WebSocket closed:', event);
+        clearTimeout(stableTimer);
+        const delay = reconnectDelay();
+        // 1013 (server at capacity or backend unavailable) and 1008 (too many connections
+        // from this address) are rejections, so they keep growing the backoff like any
+        // other close before the connection became stable
+        const reason = (event.code === 1008 || event.code === 1013) && event.reason ? event.reason + '. ' : '';
+        outputArea.value += 'Connection closed. ' + reason + 'Reconnecting in ' + Math.ceil(delay / 1000) + 's...\n';
+        sendButton.disabled = true;
+        statusIndicator.className = 'status-indicator status-disconnected';
+        setTimeout(connectWebSocket, delay);
+    };
+
+    socket.onerror = function(event) {
+        console.error('WebSocket error:', event);
+        outputArea.value += 'Connection error!\n';
+        statusIndicator.className = 'status-indicator status-disconnected';
+    };
+}
+
+function sendMessage() {
+    const input = inputArea.value.trim();
+    if (!input || !socket || socket.readyState !== WebSocket.OPEN) return;
+
+    outputArea.value += 'You: ' + input + '\n';
+    socket.send(input);
+    inputArea.value = '';
+
+    sendButton.disabled = true;
+    sendButton.textContent = 'Sending...';
+    isBotResponding = false; // Reset the flag for a new bot response
+}
+
+inputArea.addEventListener('keypress', function(e) {
+    if (e.key === 'Enter' && !e.shiftKey) {
+        e.preventDefault();
+        sendMessage();
+    }
+});
+
+connectWebSocket();
@@ -0,0 +1,47 @@
+package org.acme;
+
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * Guards {@link AdminOnly} endpoints with a shared bearer token.
+ *
+ * The admin endpoints are served on the public route, so without
+ * {@code airline.admin.token} they answer 404 as if they did not exist.
+ */
+@AdminOnly
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class AdminTokenFilter implements ContainerRequestFilter {
+
+    private static final Logger LOG = Logger.getLogger(AdminTokenFilter.class);
+
+    @ConfigProperty(name = "airline.admin.token")
+    Optional<String> token;
+
+    @Override
+    public void filter(ContainerRequestContext request) {
+        if (token.isEmpty() || token.get().isBlank()) {
+            request.abortWith(Response.status(Response.Status.NOT_FOUND).build());
+            return;
+        }
+        String authorization = request.getHeaderString(HttpHeaders.AUTHORIZATION);
+        byte[] expected = ("Bearer " + token.get()).getBytes(StandardCharsets.UTF_8);
+        // Constant-time comparison, so the token cannot be guessed from response times
+        if (authorization == null || !MessageDigest.isEqual(expected, authorization.getBytes(StandardCharsets.UTF_8))) {
+            LOG.warn("Rejected unauthenticated request to " + request.getUriInfo().getPath());
+            request.abortWith(Response.status(Response.Status.UNAUTHORIZED)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, "Bearer").build());
+        }
+    }
+}
@@ -4,14 +4,17 @@ import jakarta.inject.Inject;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.CookieParam;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
+import jakarta.ws.rs.core.Response;
 import org.jboss.logging.Logger;
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
@@ -19,73 +22,81 @@ import java.util.regex.Matcher;
 public class ChatRestResource {
 
     private static final Logger LOG = Logger.getLogger(ChatRestResource.class);
-    private static final Map<String, List<MaasChatRequest.Message>> conversations = new ConcurrentHashMap<>();
-    private static final Map<String, CompensationState> states = new ConcurrentHashMap<>();
-    private static final int MAX_HISTORY_SIZE = 20;
 
-    @RestClient
-    MaasClient maasClient;
+    public static final String SESSION_HEADER = "X-Chat-Session";
+    public static final String SESSION_COOKIE = "chat-session";
+    // Clients pick their own session IDs, so keep them short and bound how many are held
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{16,64}");
+    private static final int MAX_SESSIONS = 10_000;
+    // Shared by clients that send no session ID
+    private static final String ANONYMOUS_SESSION = "rest-session";
+
+    private static final Map<String, List<MaasChatRequest.Message>> conversations = boundedMap();
+    private static final Map<String, CompensationState> states = boundedMap();
+
+    @Inject
+    MaasGateway maasGateway;
     
     @Inject
     FlighCompensationEndPoint compensationEndpoint;
 
-    private static class CompensationState {
-        String flightNumber;
-        String issueType;
-        Integer issueDuration;
-        Double compensation;
-        String loyaltyStatus;
-        boolean inClaimMode = false;
-        
-        boolean hasAllRequiredData() {
-            // Duration not required for luggage issues
-            boolean durationValid = "luggage issues".equals(issueType) || issueDuration != null;
-            
-            return flightNumber != null && 
-                   issueType != null && 
-                   durationValid &&
-                   compensation != null &&
-                   loyaltyStatus != null;
-        }
-    }
+    @Inject
+    PromptAssembler promptAssembler;
+
+    @Inject
+    WarmUp warmUp;
+
+    @Inject
+    PolicyIndex policyIndex;
+
+    @Inject
+    ModelRouter modelRouter;
+
+    @Inject
+    DecisionLog decisionLog;
+
+    @Inject
+    ConversationMailbox mailbox;
+
+    @Inject
+    TenantRulesRegistry rulesRegistry;
 
     @POST
     @Consumes(MediaType.TEXT_PLAIN)
     @Produces(MediaType.TEXT_PLAIN)
-    public String chat(String message) {
+    public String chat(@HeaderParam(TenantRulesRegistry.TENANT_HEADER) String tenant,
+                       @HeaderParam(SESSION_HEADER) String sessionHeader,
+                       @CookieParam(SESSION_COOKIE) String sessionCookie,
+                       String message) {
+        if (!rulesRegistry.isKnown(tenant)) {
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                    .entity("Unknown airline tenant").type(MediaType.TEXT_PLAIN).build());
+        }
+        long start = System.nanoTime();
+        try {
+            String clientSession = sessionHeader != null ? sessionHeader : sessionCookie;
+            if (clientSession == null || !SESSION_ID.matcher(clientSession).matches()) {
+                // Without a session of its own the conversation may be shared by several
+                // clients, so every message gets its own turn and reply
+                return mailbox.submit(ANONYMOUS_SESSION, message,
+                        turn -> handleMessage(ANONYMOUS_SESSION, tenant, turn), false).join();
+            }
+            String sessionId = "rest-" + clientSession;
+            // Returns 204 No Content when the message was merged into a turn whose reply
+            // goes to the request that arrived after it
+            return mailbox.submit(sessionId, message, turn -> handleMessage(sessionId, tenant, turn)).join();
+        } finally {
+            warmUp.recordRequest(start);
+        }
+    }
+
+    private String handleMessage(String sessionId, String tenant, String message) {
         try {
-            // For REST, we'll use a session ID (could be from cookie/header in production)
-            String sessionId = "rest-session"; // Simplified for demo
-            
             List<MaasChatRequest.Message> history = conversations.get(sessionId);
             CompensationState state = states.get(sessionId);
             
             if (history == null) {
-                history = new ArrayList<>();
-                history.add(new MaasChatRequest.Message("system", 
-                    "You are a helpful airline customer service agent. You assist with general flight inquiries AND compensation claims. " +
-                    "DEFAULT BEHAVIOR - GENERAL CONVERSATION:\n" +
-                    "- When someone says 'hi' or 'hello', respond with a friendly greeting like 'Hello! How can I help you today?'\n" +
-                    "- Answer general questions about flights, booking, policies naturally\n" +
-                    "- DO NOT immediately ask for flight numbers or claim details\n" +
-                    "- DO NOT assume every conversation is about filing a claim\n\n" +
-                    "ONLY IF they mention a flight problem (delay, cancellation, luggage issues):\n" +
-                    "- Acknowledge the issue with empathy\n" +
-                    "- Ask: 'Would you like help filing a compensation claim for this?'\n" +
-                    "- Wait for their confirmation (yes/sure/ok)\n\n" +
-                    "ONLY AFTER they confirm wanting to file:\n" +
-                    "- Say: 'I'll need to collect information to process your claim.'\n" +
-                    "- Collect in this order:\n" +
-                    "  1. Flight number\n" +
-                    "  2. Issue type (delay/cancellation/luggage issues)\n" +
-                    "  3. IF delay or cancellation: ask 'How many hours was the delay/cancellation?'\n" +
-                    "     IF luggage issues: SKIP duration question, go directly to step 4\n" +
-                    "  4. Compensation amount - ask 'How much compensation would you like to request in dollars?'\n" +
-                    "  5. Loyalty tier - ask 'What is your rewards tier: Basic, Silver, or Gold?' (MUST get one of these three words)\n" +
-                    "- Ask ONE question at a time and wait for the answer\n" +
-                    "- CRITICAL: Do NOT say you submitted the claim or that you'll process it - the system does that AUTOMATICALLY after you collect all pieces\n" +
-                    "- After collecting loyalty tier, just say 'Thank you, I have all the information needed.' and STOP\n\n" +
-                    "REMEMBER: You ONLY collect information. The backend system submits the claim automatically."));
+                history = promptAssembler.newConversation();
                 conversations.put(sessionId, history);
             }
             
@@ -94,7 +105,7 @@ public class ChatRestResource {
                 states.put(sessionId, state);
             }
 
-            LOG.info("REST message: " + message);
+            LOG.debugf("REST message: %s", message);
 
             String lowerMessage = message.toLowerCase();
 
@@ -103,25 +114,28 @@ public class ChatRestResource {
                 if (lowerMessage.contains("yes") || lowerMessage.contains("sure") || 
                     lowerMessage.contains("ok") || lowerMessage.contains("file")) {
                     state.inClaimMode = true;
-                    LOG.info("Switching to claim mode");
+                    LOG.debug("Switching to claim mode");
                 }
             }
 
             // Extract information from user message if in claim mode
             if (state.inClaimMode) {
-                extractCompensationInfo(message, state);
+                CompensationExtractor.extractCompensationInfo(message, state);
             }
             
-            LOG.info("Current state - Flight: " + state.flightNumber + ", Issue: " + state.issueType + 
-                    ", Duration: " + state.issueDuration + ", Compensation: " + state.compensation + 
-                    ", Loyalty: " + state.loyaltyStatus + ", InClaimMode: " + state.inClaimMode);
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("Current state - Flight: %s, Issue: %s, Duration: %s, Compensation: %s, Loyalty: %s, InClaimMode: %s",
+                        state.flightNumber, state.issueType, state.issueDuration, state.compensation,
+                        state.loyaltyStatus, state.inClaimMode);
+            }
 
             // If we have all data, automatically submit to Drools
             if (state.hasAllRequiredData()) {
-                LOG.info("All data collected, processing compensation with Drools");
+                LOG.debugf("All data collected, processing compensation with Drools - Flight: %s", state.flightNumber);
                 
                 try {
                     String result = compensationEndpoint.flightCompensation(
+                        tenant != null ? tenant : TenantRulesRegistry.DEFAULT_TENANT,
                         state.flightNumber,
                         state.issueType,
                         state.issueDuration != null ? state.issueDuration : 0, // Use 0 for luggage
@@ -166,7 +180,8 @@ public class ChatRestResource {
                     // Reset state after processing
                     states.put(sessionId, new CompensationState());
                     conversations.remove(sessionId);
-                    
+
+                    decisionLog.chatTurn("rest", sessionId, "rules");
                     return responseMessage;
                     
                 } catch (Exception e) {
@@ -176,20 +191,27 @@ public class ChatRestResource {
             }
 
             // Otherwise, continue conversation with LLM
-            if (history.size() > MAX_HISTORY_SIZE) {
-                MaasChatRequest.Message systemMsg = history.get(0);
-                history.clear();
-                history.add(systemMsg);
-            }
-
+            ConversationPhase phase = ConversationPhase.of(state, history, message);
             history.add(new MaasChatRequest.Message("user", message));
 
-            MaasChatRequest request = new MaasChatRequest(history);
-            MaasChatResponse response = maasClient.getChatCompletion(request).await().indefinitely();
+            // Policy questions the documents answer outright skip the LLM
+            PolicyIndex.Retrieval retrieval = policyIndex.retrieve(message, phase);
+            if (retrieval.isAnswered()) {
+                String answer = retrieval.answer().passage().text();
+                history.add(new MaasChatRequest.Message("assistant", answer));
+                decisionLog.chatTurn("rest", sessionId, "policy");
+                return answer;
+            }
+
+            String grounding = retrieval.grounding();
+            MaasChatRequest request = promptAssembler.assemble(history, grounding);
+            ModelRouter.Route route = modelRouter.classify(phase, message, grounding != null);
+            MaasChatResponse response = maasGateway.complete(request, phase, route);
 
             if (response.choices != null && !response.choices.isEmpty()) {
                 String botResponse = response.choices.get(0).message.content;
                 history.add(new MaasChatRequest.Message("assistant", botResponse));
+                decisionLog.chatTurn("rest", sessionId, "llm-" + route.key());
                 return botResponse;
             } else {
                 return "I'm sorry, I couldn't process your request at this time.";
@@ -201,86 +223,13 @@ public class ChatRestResource {
         }
     }
 
-    private void extractCompensationInfo(String message, CompensationState state) {
-        String lowerMessage = message.toLowerCase();
-        
-        Pattern flightPattern = Pattern.compile(
-            "(?:flight\\s*(?:number|#)?\\s*:?\\s*)?([A-Z]{2}\\d{2,4})|(?:flight\\s*#?\\s*)(\\d{2,4})", 
-            Pattern.CASE_INSENSITIVE
-        );
-        Matcher flightMatcher = flightPattern.matcher(message);
-        if (flightMatcher.find() && state.flightNumber == null) {
-            if (flightMatcher.group(1) != null) {
-                state.flightNumber = flightMatcher.group(1);
-            } else if (flightMatcher.group(2) != null) {
-                state.flightNumber = "FL" + flightMatcher.group(2);
+    // Least recently used sessions are dropped once MAX_SESSIONS is reached
+    private static <V> Map<String, V> boundedMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_SESSIONS;
             }
-        }
-        
-        if (lowerMessage.contains("delay") && state.issueType == null) {
-            state.issueType = "delay";
-        } else if (lowerMessage.contains("cancel") && state.issueType == null) {
-            state.issueType = "cancellation";
-        } else if ((lowerMessage.contains("luggage") || lowerMessage.contains("baggage") || 
-                   lowerMessage.contains("bag") || lowerMessage.contains("lost") || 
-                   lowerMessage.contains("damaged") || lowerMessage.contains("missing")) && state.issueType == null) {
-            state.issueType = "luggage issues";
-        }
-        
-        // Extract duration - only for delay/cancellation, not for luggage
-        if (!"luggage issues".equals(state.issueType) &&
-            !lowerMessage.contains("$") && 
-            !lowerMessage.contains("dollar") && 
-            !lowerMessage.contains("compensation") && 
-            !lowerMessage.contains("request") &&
-            state.issueDuration == null) {
-            
-            // First try with hour/day keywords
-            Pattern durationPattern = Pattern.compile("(\\d+)\\s*(?:hour|hr|h|day)s?", Pattern.CASE_INSENSITIVE);
-            Matcher durationMatcher = durationPattern.matcher(message);
-            if (durationMatcher.find()) {
-                state.issueDuration = Integer.parseInt(durationMatcher.group(1));
-            } else {
-                // If no keywords, check if the message is JUST a number (for when user responds with just "3")
-                String trimmed = message.trim();
-                if (trimmed.matches("\\d+")) {
-                    int num = Integer.parseInt(trimmed);
-                    // Only accept reasonable hour values (1-72 hours)
-                    if (num >= 1 && num <= 72) {
-                        state.issueDuration = num;
-                    }
-                }
-            }
-        }
-        
-        if ((lowerMessage.contains("$") || 
-             lowerMessage.contains("dollar") || 
-             lowerMessage.contains("compensation") ||
-             lowerMessage.contains("request") ||
-             lowerMessage.contains("want") ||
-             lowerMessage.contains("seeking")) && 
-            state.compensation == null) {
-            Pattern compensationPattern = Pattern.compile("\\$?([0-9,]+)(?:\\s*dollars?)?", Pattern.CASE_INSENSITIVE);
-            Matcher compensationMatcher = compensationPattern.matcher(message);
-            if (compensationMatcher.find()) {
-                String amountStr = compensationMatcher.group(1).replace(",", "");
-                try {
-                    double amount = Double.parseDouble(amountStr);
-                    if (amount > 0 && amount <= 10000) {
-                        state.compensation = amount;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore
-                }
-            }
-        }
-        
-        if ((lowerMessage.contains("gold") || lowerMessage.contains("gold member")) && state.loyaltyStatus == null) {
-            state.loyaltyStatus = "gold";
-        } else if ((lowerMessage.contains("silver") || lowerMessage.contains("silver member")) && state.loyaltyStatus == null) {
-            state.loyaltyStatus = "silver";
-        } else if ((lowerMessage.contains("basic") || lowerMessage.contains("basic member")) && state.loyaltyStatus == null) {
-            state.loyaltyStatus = "basic";
-        }
+        });
     }
-}
\ No newline at end of file
+}
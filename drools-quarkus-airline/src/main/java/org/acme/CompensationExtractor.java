@@ -0,0 +1,102 @@
+package org.acme;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Regex extraction of claim data from free-text user messages.
+ */
+final class CompensationExtractor {
+
+    private static final Pattern FLIGHT_PATTERN = Pattern.compile(
+        "(?:flight\\s*(?:number|#)?\\s*:?\\s*)?([A-Z]{2}\\d{2,4})|(?:flight\\s*#?\\s*)(\\d{2,4})", 
+        Pattern.CASE_INSENSITIVE
+    );
+    private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)\\s*(?:hour|hr|h|day)s?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPENSATION_PATTERN = Pattern.compile("\\$?([0-9,]+)(?:\\s*dollars?)?", Pattern.CASE_INSENSITIVE);
+
+    private CompensationExtractor() {
+    }
+
+    static void extractCompensationInfo(String message, CompensationState state) {
+        String lowerMessage = message.toLowerCase();
+        
+        // Extract flight number
+        Matcher flightMatcher = FLIGHT_PATTERN.matcher(message);
+        if (flightMatcher.find() && state.flightNumber == null) {
+            if (flightMatcher.group(1) != null) {
+                state.flightNumber = flightMatcher.group(1);
+            } else if (flightMatcher.group(2) != null) {
+                state.flightNumber = "FL" + flightMatcher.group(2);
+            }
+        }
+        
+        // Extract issue type
+        if (lowerMessage.contains("delay") && state.issueType == null) {
+            state.issueType = "delay";
+        } else if (lowerMessage.contains("cancel") && state.issueType == null) {
+            state.issueType = "cancellation";
+        } else if ((lowerMessage.contains("luggage") || lowerMessage.contains("baggage") || 
+                   lowerMessage.contains("bag") || lowerMessage.contains("lost") || 
+                   lowerMessage.contains("damaged") || lowerMessage.contains("missing")) && state.issueType == null) {
+            state.issueType = "luggage issues";
+        }
+        
+        // Extract duration - only for delay/cancellation, not for luggage
+        if (!"luggage issues".equals(state.issueType) &&
+            !lowerMessage.contains("$") && 
+            !lowerMessage.contains("dollar") && 
+            !lowerMessage.contains("compensation") && 
+            !lowerMessage.contains("request") &&
+            state.issueDuration == null) {
+            
+            // First try with hour/day keywords
+            Matcher durationMatcher = DURATION_PATTERN.matcher(message);
+            if (durationMatcher.find()) {
+                state.issueDuration = Integer.parseInt(durationMatcher.group(1));
+            } else {
+                // If no keywords, check if the message is JUST a number (for when user responds with just "3")
+                String trimmed = message.trim();
+                if (trimmed.matches("\\d+")) {
+                    int num = Integer.parseInt(trimmed);
+                    // Only accept reasonable hour values (1-72 hours)
+                    if (num >= 1 && num <= 72) {
+                        state.issueDuration = num;
+                    }
+                }
+            }
+        }
+        
+        // Extract compensation amount
+        if ((lowerMessage.contains("$") || 
+             lowerMessage.contains("dollar") || 
+             lowerMessage.contains("compensation") ||
+             lowerMessage.contains("request") ||
+             lowerMessage.contains("want") ||
+             lowerMessage.contains("seeking")) && 
+            state.compensation == null) {
+            Matcher compensationMatcher = COMPENSATION_PATTERN.matcher(message);
+            if (compensationMatcher.find()) {
+                String amountStr = compensationMatcher.group(1).replace(",", "");
+                try {
+                    double amount = Double.parseDouble(amountStr);
+                    // Accept any positive amount up to $10,000
+                    if (amount > 0 && amount <= 10000) {
+                        state.compensation = amount;
+                    }
+                } catch (NumberFormatException e) {
+                    // Ignore invalid numbers
+                }
+            }
+        }
+        
+        // Extract loyalty status
+        if ((lowerMessage.contains("gold") || lowerMessage.contains("gold member")) && state.loyaltyStatus == null) {
+            state.loyaltyStatus = "gold";
+        } else if ((lowerMessage.contains("silver") || lowerMessage.contains("silver member")) && state.loyaltyStatus == null) {
+            state.loyaltyStatus = "silver";
+        } else if ((lowerMessage.contains("basic") || lowerMessage.contains("basic member")) && state.loyaltyStatus == null) {
+            state.loyaltyStatus = "basic";
+        }
+    }
+}
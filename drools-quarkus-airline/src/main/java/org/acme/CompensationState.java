@@ -0,0 +1,37 @@
+package org.acme;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Claim data collected from a conversation so far.
+ */
+class CompensationState {
+    String flightNumber;
+    String issueType;
+    Integer issueDuration;
+    Double compensation;
+    String loyaltyStatus;
+    boolean inClaimMode = false;
+    
+    boolean hasAllRequiredData() {
+        // Duration not required for luggage issues
+        boolean durationValid = "luggage issues".equals(issueType) || issueDuration != null;
+        
+        return flightNumber != null && 
+               issueType != null && 
+               durationValid &&
+               compensation != null &&
+               loyaltyStatus != null;
+    }
+    
+    String getMissingFields() {
+        List<String> missing = new ArrayList<>();
+        if (flightNumber == null) missing.add("flight number");
+        if (issueType == null) missing.add("issue type");
+        if (issueDuration == null && !"luggage issues".equals(issueType)) missing.add("duration");
+        if (compensation == null) missing.add("compensation amount");
+        if (loyaltyStatus == null) missing.add("loyalty status");
+        return String.join(", ", missing);
+    }
+}
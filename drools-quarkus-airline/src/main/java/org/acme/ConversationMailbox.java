@@ -0,0 +1,146 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Runs the turns of each chat session one at a time, in arrival order.
+ *
+ * Conversation history and {@link CompensationState} are not thread-safe, so every
+ * session gets a mailbox that is drained by at most one thread. Messages that arrive
+ * while a turn is running are joined into the next turn, so a user who sends "hi",
+ * "my flight" and "UA123 was delayed" in quick succession gets one LLM call for the
+ * last two instead of one each.
+ */
+@ApplicationScoped
+public class ConversationMailbox {
+
+    private static final Logger LOG = Logger.getLogger(ConversationMailbox.class);
+
+    private final Map<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter turns;
+    private final Counter coalescedMessages;
+
+    // Each message carries its own handler, so a turn runs with the request context
+    // (tenant, connection) of the message that closes it
+    private record Pending(String message, Function<String, String> handler, boolean coalesce,
+                           CompletableFuture<String> reply) {
+    }
+
+    private static final class Mailbox {
+        final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+    }
+
+    @Inject
+    public ConversationMailbox(MeterRegistry registry) {
+        this.turns = registry.counter("chat.mailbox.turns");
+        this.coalescedMessages = registry.counter("chat.mailbox.coalesced.messages");
+    }
+
+    /**
+     * Queues a message for the session. The handler is called with the text of one
+     * turn, which is this message joined with any others queued behind the running
+     * turn. The returned future completes with the reply for the message that closed
+     * the turn, and with null for the messages that were merged into it. A turn is
+     * handled by the handler passed with its last message.
+     */
+    public CompletableFuture<String> submit(String sessionId, String message, Function<String, String> handler) {
+        return submit(sessionId, message, handler, true);
+    }
+
+    /**
+     * Queues a message for the session. With {@code coalesce} false the message gets
+     * a turn and a reply of its own, and is only ordered with the other messages of the
+     * session; use it when the session may be shared by several clients.
+     */
+    public CompletableFuture<String> submit(String sessionId, String message, Function<String, String> handler,
+                                            boolean coalesce) {
+        Pending pending = new Pending(message, handler, coalesce, new CompletableFuture<>());
+        // Queued inside compute so an idle mailbox is never removed with a message in it
+        Mailbox mailbox = mailboxes.compute(sessionId, (id, existing) -> {
+            Mailbox target = existing != null ? existing : new Mailbox();
+            target.queue.add(pending);
+            return target;
+        });
+        if (mailbox.draining.compareAndSet(false, true)) {
+            executor.execute(() -> drain(sessionId, mailbox));
+        }
+        return pending.reply();
+    }
+
+    /**
+     * Forgets the session. A turn that is already running still completes.
+     */
+    public void remove(String sessionId) {
+        mailboxes.remove(sessionId);
+    }
+
+    private void drain(String sessionId, Mailbox mailbox) {
+        do {
+            Pending next;
+            while ((next = mailbox.queue.poll()) != null) {
+                List<Pending> batch = new ArrayList<>();
+                batch.add(next);
+                if (next.coalesce()) {
+                    // Only this thread polls, so a peeked entry is still there to take
+                    while (mailbox.queue.peek() != null && mailbox.queue.peek().coalesce()) {
+                        batch.add(mailbox.queue.poll());
+                    }
+                }
+                runTurn(batch);
+            }
+            mailbox.draining.set(false);
+            // A message queued after the last poll but before the flag was cleared has
+            // not scheduled a drain of its own, so pick it up here
+        } while (!mailbox.queue.isEmpty() && mailbox.draining.compareAndSet(false, true));
+        // Drop idle mailboxes, so sessions that are never closed explicitly do not pile up
+        mailboxes.computeIfPresent(sessionId, (id, current) ->
+            current == mailbox && current.queue.isEmpty() && !current.draining.get() ? null : current);
+    }
+
+    private void runTurn(List<Pending> batch) {
+        StringBuilder text = new StringBuilder();
+        for (Pending pending : batch) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(pending.message());
+        }
+        turns.increment();
+        coalescedMessages.increment(batch.size() - 1);
+
+        Pending last = batch.get(batch.size() - 1);
+        for (Pending merged : batch.subList(0, batch.size() - 1)) {
+            merged.reply().complete(null);
+        }
+        try {
+            last.reply().complete(last.handler().apply(text.toString()));
+        } catch (RuntimeException e) {
+            LOG.error("Chat turn failed: " + e.getMessage(), e);
+            last.reply().completeExceptionally(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
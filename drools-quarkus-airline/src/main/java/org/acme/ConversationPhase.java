@@ -0,0 +1,39 @@
+package org.acme;
+
+import java.util.List;
+
+/**
+ * Stage of the conversation a turn belongs to, used to pick its generation budget.
+ */
+public enum ConversationPhase {
+    GREETING("greeting"),
+    SLOT_COLLECTION("slot-collection"),
+    FREE_FORM("free-form");
+
+    // Longest first message still treated as a greeting
+    private static final int MAX_GREETING_WORDS = 5;
+
+    private final String key;
+
+    ConversationPhase(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    /**
+     * Classifies the turn for a new user message, before it is added to the history.
+     */
+    static ConversationPhase of(CompensationState state, List<MaasChatRequest.Message> history, String message) {
+        if (state.inClaimMode && !state.hasAllRequiredData()) {
+            return SLOT_COLLECTION;
+        }
+        boolean firstTurn = history.stream().noneMatch(m -> "assistant".equals(m.role));
+        if (!state.inClaimMode && firstTurn && message.trim().split("\\s+").length <= MAX_GREETING_WORDS) {
+            return GREETING;
+        }
+        return FREE_FORM;
+    }
+}
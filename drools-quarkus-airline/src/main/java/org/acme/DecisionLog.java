@@ -0,0 +1,53 @@
+package org.acme;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Structured events for claim decisions and chat turns, one line each, in the
+ * {@code org.acme.decision} category.
+ *
+ * Events are sampled with {@code airline.decision-log.sample-rate} and checked against
+ * the category level before any argument is formatted, so an unsampled or disabled
+ * event costs a random draw and a level check.
+ */
+@ApplicationScoped
+public class DecisionLog {
+
+    private static final Logger LOG = Logger.getLogger("org.acme.decision");
+
+    @ConfigProperty(name = "airline.decision-log.sample-rate", defaultValue = "1.0")
+    double sampleRate;
+
+    /**
+     * Decides whether the next claim or turn is logged. Claims that are not sampled
+     * should not start a {@link DecisionTrace}.
+     */
+    public boolean sample() {
+        return LOG.isInfoEnabled()
+            && (sampleRate >= 1.0 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate));
+    }
+
+    public void claimDecided(String tenant, FlightIssue issue, String outcome, int rulesFired, List<String> firedRules,
+                             DecisionTrace trace, long startNanos) {
+        LOG.infof("event=claim.decided tenant=%s flight=%s issue=\"%s\" duration=%d requested=%.2f loyalty=%s"
+                + " outcome=%s approved=%.2f fired=%d rules=\"%s\" trace=\"%s\" micros=%d",
+            tenant, issue.getFlightNumber(), issue.getIssueType(), issue.getIssueDuration(),
+            issue.getCustomerCompensation(), issue.getCustomerLoyaltyStatus(), outcome,
+            issue.getApprovedCompensation(), rulesFired, firedRules, trace,
+            TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Logs who answered a chat turn: the rules, the policy index or an LLM route.
+     */
+    public void chatTurn(String channel, String sessionId, String answeredBy) {
+        if (sample()) {
+            LOG.infof("event=chat.turn channel=%s session=%s answered_by=%s", channel, sessionId, answeredBy);
+        }
+    }
+}
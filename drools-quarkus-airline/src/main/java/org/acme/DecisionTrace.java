@@ -0,0 +1,64 @@
+package org.acme;
+
+/**
+ * Side-effect-free trace hook for rule consequences.
+ *
+ * Rules call {@link #note(String, double)} instead of printing. A note is kept only
+ * while the current thread is evaluating a claim whose decision is being logged, and
+ * is otherwise a single thread-local read; it never touches the session or the facts.
+ */
+public final class DecisionTrace {
+
+    private static final int MAX_NOTES = 32;
+    private static final ThreadLocal<DecisionTrace> CURRENT = new ThreadLocal<>();
+
+    private final String[] rules = new String[MAX_NOTES];
+    private final double[] values = new double[MAX_NOTES];
+    private int size;
+    private int dropped;
+
+    private DecisionTrace() {
+    }
+
+    /**
+     * Records the value a rule produced, e.g. the compensation it approved.
+     */
+    public static void note(String rule, double value) {
+        DecisionTrace trace = CURRENT.get();
+        if (trace == null) {
+            return;
+        }
+        if (trace.size == MAX_NOTES) {
+            trace.dropped++;
+            return;
+        }
+        trace.rules[trace.size] = rule;
+        trace.values[trace.size] = value;
+        trace.size++;
+    }
+
+    static DecisionTrace begin() {
+        DecisionTrace trace = new DecisionTrace();
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    static void end() {
+        CURRENT.remove();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                text.append(", ");
+            }
+            text.append(rules[i]).append('=').append(values[i]);
+        }
+        if (dropped > 0) {
+            text.append(", ... ").append(dropped).append(" more");
+        }
+        return text.append(']').toString();
+    }
+}
@@ -0,0 +1,68 @@
+package org.acme;
+
+import io.quarkus.arc.profile.IfBuildProfile;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import java.util.List;
+
+/**
+ * OpenAI-compatible stand-ins for the small and large models, so routing can be tried
+ * in dev mode without a MaaS endpoint. The large model answers more slowly and at more
+ * length than the small one. Only present in the dev profile.
+ */
+@IfBuildProfile("dev")
+@Path("/dev/maas/{route}/v1")
+public class DevModelStubResource {
+
+    @POST
+    @Path("/chat/completions")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public MaasChatResponse chatCompletion(@PathParam("route") String route, MaasChatRequest request) throws InterruptedException {
+        boolean large = "large".equals(route);
+        Thread.sleep(large ? 800 : 150);
+
+        String lastMessage = request.messages.get(request.messages.size() - 1).content;
+        String content = large
+            ? "[large stub" + model(request) + "] Thank you for your question. Here is a detailed answer about: " + lastMessage
+            : "[small stub" + model(request) + "] Got it: " + lastMessage;
+
+        MaasChatResponse response = new MaasChatResponse();
+        response.id = "stub-" + System.nanoTime();
+        response.object = "chat.completion";
+        response.created = System.currentTimeMillis() / 1000;
+        response.model = request.model != null ? request.model : route + "-stub";
+
+        MaasChatResponse.Choice choice = new MaasChatResponse.Choice();
+        choice.message = new MaasChatResponse.Message();
+        choice.message.role = "assistant";
+        choice.message.content = content;
+        choice.finish_reason = "stop";
+        response.choices = List.of(choice);
+
+        // Rough token counts so the per-route cost metrics move
+        response.usage = new MaasChatResponse.Usage();
+        for (MaasChatRequest.Message message : request.messages) {
+            response.usage.prompt_tokens += message.content.length() / 4;
+        }
+        response.usage.completion_tokens = content.length() / 4;
+        response.usage.total_tokens = response.usage.prompt_tokens + response.usage.completion_tokens;
+        return response;
+    }
+
+    @GET
+    @Path("/models")
+    @Produces(MediaType.APPLICATION_JSON)
+    public String models(@PathParam("route") String route) {
+        return "{\"object\":\"list\",\"data\":[{\"id\":\"" + route + "-stub\",\"object\":\"model\"}]}";
+    }
+
+    private static String model(MaasChatRequest request) {
+        return request.model != null ? " " + request.model : "";
+    }
+}
@@ -1,5 +1,7 @@
 package org.acme;
 
+import java.time.LocalDate;
+
 public class FlightIssue {
 
     private String flightNumber;
@@ -8,6 +10,9 @@ public class FlightIssue {
     private double customerCompensation;
     private String customerLoyaltyStatus;
     private double approvedCompensation = 0.0; // Make this private
+    private LocalDate flightDate; // null when the customer did not give one
+    private boolean delayVerified = false;
+    private boolean loyaltyBonusApplied = false;
 
     public FlightIssue(String flightNumber, String issueType, int issueDuration, double customerCompensation, String customerLoyaltyStatus) {
         this.flightNumber = flightNumber;
@@ -64,4 +69,28 @@ public class FlightIssue {
     public void setApprovedCompensation(double approvedCompensation) {
         this.approvedCompensation = approvedCompensation;
     }
+
+    public LocalDate getFlightDate() {
+        return flightDate;
+    }
+
+    public void setFlightDate(LocalDate flightDate) {
+        this.flightDate = flightDate;
+    }
+
+    public boolean isDelayVerified() {
+        return delayVerified;
+    }
+
+    public void setDelayVerified(boolean delayVerified) {
+        this.delayVerified = delayVerified;
+    }
+
+    public boolean isLoyaltyBonusApplied() {
+        return loyaltyBonusApplied;
+    }
+
+    public void setLoyaltyBonusApplied(boolean loyaltyBonusApplied) {
+        this.loyaltyBonusApplied = loyaltyBonusApplied;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package org.acme;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Loads the flight operations file built by {@link FlightOpsLoader} and publishes it
+ * to {@link FlightOpsHelper}.
+ *
+ * A reload maps the current file and swaps the reference, so replacing the file on
+ * disk and calling {@link #reload()} takes effect without restarting the pod or
+ * copying the dataset onto the heap. The previous mapping is released once no lookup
+ * uses it anymore.
+ */
+@ApplicationScoped
+public class FlightOpsData {
+
+    private static final Logger LOG = Logger.getLogger(FlightOpsData.class);
+
+    @ConfigProperty(name = "airline.flight-ops.file")
+    Optional<String> file;
+
+    @Inject
+    void initMetrics(MeterRegistry registry) {
+        registry.gauge("flight.ops.records", this, data -> {
+            FlightOpsIndex index = FlightOpsHelper.current();
+            return index == null ? 0 : index.size();
+        });
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (file.isEmpty()) {
+            LOG.info("No flight operations file configured, rules will use the reported delays");
+            return;
+        }
+        try {
+            reload();
+        } catch (IOException e) {
+            LOG.error("Failed to load flight operations file " + file.get() + ": " + e.getMessage(), e);
+        }
+    }
+
+    public boolean isConfigured() {
+        return file.isPresent();
+    }
+
+    /**
+     * Maps the configured file and makes it the one used by the rules.
+     * @return The number of flight-day records now loaded.
+     */
+    public synchronized int reload() throws IOException {
+        Path path = Path.of(file.orElseThrow(() -> new IOException("airline.flight-ops.file is not set")));
+        long start = System.nanoTime();
+        FlightOpsIndex index = FlightOpsIndex.open(path);
+        FlightOpsHelper.swap(index);
+        LOG.info("Loaded " + index.size() + " flight operations records from " + path + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return index.size();
+    }
+}
@@ -0,0 +1,40 @@
+package org.acme;
+
+import java.time.LocalDate;
+
+/**
+ * Helper class giving the Drools rules access to the flight operations dataset.
+ */
+public class FlightOpsHelper {
+
+    // Replaced as a whole on reload; lookups in flight keep using the index they read
+    private static volatile FlightOpsIndex index;
+
+    static void swap(FlightOpsIndex newIndex) {
+        index = newIndex;
+    }
+
+    static FlightOpsIndex current() {
+        return index;
+    }
+
+    /**
+     * Returns the recorded arrival delay of the flight in hours, rounded up so that a
+     * delay of 121 minutes counts as more than two hours, or -1 if no
+     * dataset is loaded, the flight has no record, or it was cancelled.
+     * @param flightDate The date of the flight. Without one there is no lookup: a record
+     *                   for the same flight number on another day says nothing about
+     *                   the delay the customer reported, so it is kept.
+     */
+    public static int verifiedDelayHours(String flightNumber, LocalDate flightDate) {
+        FlightOpsIndex current = index;
+        if (current == null || flightDate == null) {
+            return -1;
+        }
+        int minutes = current.delayMinutes(flightNumber, flightDate);
+        if (minutes == FlightOpsIndex.NOT_FOUND || minutes == FlightOpsIndex.CANCELLED) {
+            return -1;
+        }
+        return (minutes + 59) / 60;
+    }
+}
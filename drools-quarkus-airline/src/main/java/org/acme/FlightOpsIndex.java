@@ -0,0 +1,193 @@
+package org.acme;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * Read-only view of a flight operations file written by {@link FlightOpsLoader}.
+ *
+ * The file holds a header followed by a sorted column of 8-byte keys (flight number
+ * and date) and a column of 4-byte arrival delays in minutes. Both columns are memory
+ * mapped, and a sparse index of every {@value #BLOCK_SIZE}th key is kept in a direct
+ * buffer, so a lookup is a search over the sparse index and then within one block,
+ * without touching the Java heap.
+ */
+public final class FlightOpsIndex {
+
+    static final int MAGIC = 0x464F5053; // "FOPS"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    /** Delay value stored for cancelled flights. */
+    public static final int CANCELLED = -1;
+    /** Returned when there is no record for the flight. */
+    public static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    private static final int BLOCK_SIZE = 1024;
+
+    // Flight numbers are packed in base 37 so that key order matches string order
+    private static final int MAX_FLIGHT_CHARS = 8;
+    private static final LocalDate EPOCH = LocalDate.of(2000, 1, 1);
+    private static final int MAX_DAY = 0xFFFF;
+
+    private final Path path;
+    private final int count;
+    private final LongBuffer keys;
+    private final ByteBuffer delays;
+    private final LongBuffer fences;
+
+    private FlightOpsIndex(Path path, int count, LongBuffer keys, ByteBuffer delays, LongBuffer fences) {
+        this.path = path;
+        this.count = count;
+        this.keys = keys;
+        this.delays = delays;
+        this.fences = fences;
+    }
+
+    /**
+     * Maps the file. The mapping stays valid after the file is replaced on disk, so a
+     * new file can be swapped in while lookups on this instance are still running.
+     */
+    public static FlightOpsIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a flight operations file: " + path);
+            }
+            long records = header.getLong(8);
+            if (records < 0 || records * Long.BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Unsupported record count " + records + " in " + path);
+            }
+            int count = (int) records;
+            long keysSize = (long) count * Long.BYTES;
+            long delaysSize = (long) count * Integer.BYTES;
+            if (channel.size() < HEADER_SIZE + keysSize + delaysSize) {
+                throw new IOException("Truncated flight operations file: " + path);
+            }
+
+            MappedByteBuffer keyColumn = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, keysSize);
+            MappedByteBuffer delayColumn = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + keysSize, delaysSize);
+            LongBuffer keys = keyColumn.order(ByteOrder.BIG_ENDIAN).asLongBuffer();
+
+            int blocks = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            LongBuffer fences = ByteBuffer.allocateDirect(Math.max(blocks, 1) * Long.BYTES).asLongBuffer();
+            for (int block = 0; block < blocks; block++) {
+                fences.put(block, keys.get(block * BLOCK_SIZE));
+            }
+            return new FlightOpsIndex(path, count, keys, delayColumn.order(ByteOrder.BIG_ENDIAN), fences);
+        }
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the arrival delay in minutes of the flight on the given date,
+     * {@link #CANCELLED}, or {@link #NOT_FOUND}.
+     */
+    public int delayMinutes(String flightNumber, LocalDate date) {
+        return latestDelayMinutes(flightNumber, date, 0);
+    }
+
+    /**
+     * Returns the delay of the latest record for the flight on or before the date,
+     * looking back at most {@code lookbackDays}, or {@link #NOT_FOUND}.
+     */
+    public int latestDelayMinutes(String flightNumber, LocalDate date, int lookbackDays) {
+        long flight = encodeFlight(flightNumber);
+        int day = dayOffset(date);
+        if (flight < 0 || day < 0 || count == 0) {
+            return NOT_FOUND;
+        }
+        int index = floorIndex(key(flight, day));
+        if (index < 0) {
+            return NOT_FOUND;
+        }
+        long found = keys.get(index);
+        if (found >>> 16 != flight || day - (int) (found & MAX_DAY) > lookbackDays) {
+            return NOT_FOUND;
+        }
+        return delays.getInt(index * Integer.BYTES);
+    }
+
+    // Index of the greatest key <= target, or -1
+    private int floorIndex(long target) {
+        int lo = 0;
+        int hi = (count + BLOCK_SIZE - 1) / BLOCK_SIZE - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (fences.get(mid) <= target) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (hi < 0) {
+            return -1;
+        }
+        lo = hi * BLOCK_SIZE;
+        hi = Math.min(lo + BLOCK_SIZE, count) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys.get(mid) <= target) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return hi;
+    }
+
+    static long key(long flight, int day) {
+        return flight << 16 | day;
+    }
+
+    /**
+     * Packs a flight number into 42 bits, or returns -1 if it cannot be represented.
+     */
+    static long encodeFlight(String flightNumber) {
+        if (flightNumber == null) {
+            return -1;
+        }
+        String normalized = flightNumber.trim().toUpperCase();
+        if (normalized.isEmpty() || normalized.length() > MAX_FLIGHT_CHARS) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = 0; i < MAX_FLIGHT_CHARS; i++) {
+            int digit = 0;
+            if (i < normalized.length()) {
+                char c = normalized.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    digit = 1 + (c - '0');
+                } else if (c >= 'A' && c <= 'Z') {
+                    digit = 11 + (c - 'A');
+                } else {
+                    return -1;
+                }
+            }
+            value = value * 37 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Days since 2000-01-01, or -1 if the date is outside the representable range.
+     */
+    static int dayOffset(LocalDate date) {
+        long offset = date.toEpochDay() - EPOCH.toEpochDay();
+        return offset < 0 || offset > MAX_DAY ? -1 : (int) offset;
+    }
+}
@@ -0,0 +1,277 @@
+package org.acme;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Converts a flight operations CSV export into the sorted binary file read by
+ * {@link FlightOpsIndex}.
+ *
+ * Input lines are {@code flight_number,flight_date,arrival_delay_minutes[,cancelled]}
+ * with ISO dates; a header line and malformed lines are skipped. Rows are sorted in
+ * bounded chunks that are spilled to disk and merged, so exports with tens of
+ * millions of rows convert with a fixed amount of heap. When a flight appears more
+ * than once on a day, a cancellation wins over a delay, and otherwise the larger
+ * delay is kept.
+ *
+ * Usage: {@code java -cp <app classpath> org.acme.FlightOpsLoader <export.csv> <flight-ops.bin>}
+ */
+public final class FlightOpsLoader {
+
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int IO_BUFFER = 1 << 20;
+
+    private FlightOpsLoader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: FlightOpsLoader <export.csv> <flight-ops.bin>");
+            System.exit(1);
+        }
+        long start = System.nanoTime();
+        long records = convert(Path.of(args[0]), Path.of(args[1]));
+        System.out.println("Wrote " + records + " records to " + args[1] + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Converts the export and atomically replaces the output file. Returns the number
+     * of records written.
+     */
+    public static long convert(Path csv, Path output) throws IOException {
+        return convert(csv, output, CHUNK_SIZE);
+    }
+
+    // Smaller chunks make tests go through the merge of several runs
+    static long convert(Path csv, Path output, int chunkSize) throws IOException {
+        Path workDir = Files.createTempDirectory(output.toAbsolutePath().getParent(), "flight-ops-");
+        try {
+            List<Path> runs = writeSortedRuns(csv, workDir, chunkSize);
+            Path tmp = workDir.resolve("flight-ops.bin");
+            long records = merge(runs, workDir, tmp);
+            Files.move(tmp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return records;
+        } finally {
+            try (var files = Files.list(workDir)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    private static List<Path> writeSortedRuns(Path csv, Path workDir, int chunkSize) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        long[] keys = new long[chunkSize];
+        int[] delays = new int[chunkSize];
+        int size = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length < 3) {
+                    continue;
+                }
+                long flight = FlightOpsIndex.encodeFlight(fields[0]);
+                int day;
+                int delay;
+                try {
+                    day = FlightOpsIndex.dayOffset(LocalDate.parse(fields[1].trim()));
+                    boolean cancelled = fields.length > 3 && isTrue(fields[3]);
+                    delay = cancelled ? FlightOpsIndex.CANCELLED : Math.max(0, Integer.parseInt(fields[2].trim()));
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    continue;
+                }
+                if (flight < 0 || day < 0) {
+                    continue;
+                }
+                keys[size] = FlightOpsIndex.key(flight, day);
+                delays[size] = delay;
+                if (++size == chunkSize) {
+                    runs.add(writeRun(keys, delays, size, workDir, runs.size()));
+                    size = 0;
+                }
+            }
+        }
+        if (size > 0 || runs.isEmpty()) {
+            runs.add(writeRun(keys, delays, size, workDir, runs.size()));
+        }
+        return runs;
+    }
+
+    private static Path writeRun(long[] keys, int[] delays, int size, Path workDir, int number) throws IOException {
+        sort(keys, delays, 0, size - 1);
+        Path run = workDir.resolve("run-" + number);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), IO_BUFFER))) {
+            for (int i = 0; i < size; i++) {
+                out.writeLong(keys[i]);
+                out.writeInt(delays[i]);
+            }
+        }
+        return run;
+    }
+
+    private static final class Run implements Comparable<Run> {
+        final DataInputStream in;
+        long key;
+        int delay;
+
+        Run(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), IO_BUFFER));
+        }
+
+        boolean next() throws IOException {
+            try {
+                key = in.readLong();
+                delay = in.readInt();
+                return true;
+            } catch (EOFException e) {
+                in.close();
+                return false;
+            }
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            return Long.compare(key, other.key);
+        }
+    }
+
+    // Merges the runs, writing keys straight into the output after the header and
+    // delays into a side file that is appended once the key column is complete
+    private static long merge(List<Path> runs, Path workDir, Path output) throws IOException {
+        Path delayFile = workDir.resolve("delays");
+        long records = 0;
+        PriorityQueue<Run> queue = new PriorityQueue<>();
+        for (Path path : runs) {
+            Run run = new Run(path);
+            if (run.next()) {
+                queue.add(run);
+            }
+        }
+        try (DataOutputStream keysOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output), IO_BUFFER));
+             DataOutputStream delaysOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(delayFile), IO_BUFFER))) {
+            keysOut.write(new byte[FlightOpsIndex.HEADER_SIZE]);
+            long pendingKey = -1;
+            int pendingDelay = 0;
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                if (run.key == pendingKey) {
+                    pendingDelay = combine(pendingDelay, run.delay);
+                } else {
+                    if (pendingKey >= 0) {
+                        keysOut.writeLong(pendingKey);
+                        delaysOut.writeInt(pendingDelay);
+                        records++;
+                    }
+                    pendingKey = run.key;
+                    pendingDelay = run.delay;
+                }
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+            if (pendingKey >= 0) {
+                keysOut.writeLong(pendingKey);
+                delaysOut.writeInt(pendingDelay);
+                records++;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             InputStream delays = Files.newInputStream(delayFile);
+             OutputStream out = java.nio.channels.Channels.newOutputStream(channel)) {
+            delays.transferTo(out);
+        }
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(FlightOpsIndex.HEADER_SIZE);
+            header.putInt(FlightOpsIndex.MAGIC).putInt(FlightOpsIndex.VERSION).putLong(records).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        return records;
+    }
+
+    private static int combine(int a, int b) {
+        if (a == FlightOpsIndex.CANCELLED || b == FlightOpsIndex.CANCELLED) {
+            return FlightOpsIndex.CANCELLED;
+        }
+        return Math.max(a, b);
+    }
+
+    private static boolean isTrue(String value) {
+        String v = value.trim();
+        return v.equals("1") || v.equalsIgnoreCase("true") || v.equalsIgnoreCase("y");
+    }
+
+    // Quicksort of the keys that moves the matching delays along with them
+    private static void sort(long[] keys, int[] delays, int lo, int hi) {
+        while (hi - lo > 16) {
+            int mid = (lo + hi) >>> 1;
+            // Median of three, so already sorted exports do not degrade
+            if (keys[mid] < keys[lo]) swap(keys, delays, mid, lo);
+            if (keys[hi] < keys[lo]) swap(keys, delays, hi, lo);
+            if (keys[hi] < keys[mid]) swap(keys, delays, hi, mid);
+            long pivot = keys[mid];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(keys, delays, i++, j--);
+                }
+            }
+            // Recurse into the smaller side to bound the stack depth
+            if (j - lo < hi - i) {
+                sort(keys, delays, lo, j);
+                lo = i;
+            } else {
+                sort(keys, delays, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            long key = keys[i];
+            int delay = delays[i];
+            int j = i - 1;
+            while (j >= lo && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                delays[j + 1] = delays[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            delays[j + 1] = delay;
+        }
+    }
+
+    private static void swap(long[] keys, int[] delays, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int delay = delays[a];
+        delays[a] = delays[b];
+        delays[b] = delay;
+    }
+}
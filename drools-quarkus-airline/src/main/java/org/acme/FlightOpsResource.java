@@ -0,0 +1,38 @@
+package org.acme;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.logging.Logger;
+import java.io.IOException;
+
+@Path("/admin/flight-ops")
+@AdminOnly
+public class FlightOpsResource {
+
+    private static final Logger LOG = Logger.getLogger(FlightOpsResource.class);
+
+    @Inject
+    FlightOpsData flightOpsData;
+
+    @POST
+    @Path("/reload")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response reload() {
+        if (!flightOpsData.isConfigured()) {
+            return Response.status(Response.Status.CONFLICT)
+                    .entity("airline.flight-ops.file is not set").build();
+        }
+        try {
+            int records = flightOpsData.reload();
+            return Response.ok("Loaded " + records + " records").build();
+        } catch (IOException e) {
+            // The previous file stays in use
+            LOG.error("Flight operations reload failed: " + e.getMessage(), e);
+            return Response.serverError().entity("Reload failed: " + e.getMessage()).build();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.acme;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Per-phase generation settings for MaaS requests, plus completion token and
+ * finish reason metrics per phase so the budgets can be tuned from real traffic.
+ *
+ * Greeting and slot-collection replies should be a single short turn, so by default
+ * they stop where a model would start writing the customer's next line.
+ */
+@ApplicationScoped
+public class GenerationProfiles {
+
+    private static final String DEFAULT_STOP = "User:,Customer:";
+
+    public record GenerationProfile(int maxTokens, double temperature, List<String> stop) {
+    }
+
+    private final Map<ConversationPhase, GenerationProfile> profiles = new EnumMap<>(ConversationPhase.class);
+    private final MeterRegistry registry;
+
+    @Inject
+    public GenerationProfiles(
+            @ConfigProperty(name = "airline.generation.greeting.max-tokens", defaultValue = "60") int greetingMaxTokens,
+            @ConfigProperty(name = "airline.generation.greeting.temperature", defaultValue = "0.7") double greetingTemperature,
+            @ConfigProperty(name = "airline.generation.greeting.stop", defaultValue = DEFAULT_STOP) List<String> greetingStop,
+            @ConfigProperty(name = "airline.generation.slot-collection.max-tokens", defaultValue = "80") int slotMaxTokens,
+            @ConfigProperty(name = "airline.generation.slot-collection.temperature", defaultValue = "0.2") double slotTemperature,
+            @ConfigProperty(name = "airline.generation.slot-collection.stop", defaultValue = DEFAULT_STOP) List<String> slotStop,
+            @ConfigProperty(name = "airline.generation.free-form.max-tokens", defaultValue = "200") int freeFormMaxTokens,
+            @ConfigProperty(name = "airline.generation.free-form.temperature", defaultValue = "0.7") double freeFormTemperature,
+            @ConfigProperty(name = "airline.generation.free-form.stop") Optional<List<String>> freeFormStop,
+            MeterRegistry registry) {
+        profiles.put(ConversationPhase.GREETING, new GenerationProfile(greetingMaxTokens, greetingTemperature, List.copyOf(greetingStop)));
+        profiles.put(ConversationPhase.SLOT_COLLECTION, new GenerationProfile(slotMaxTokens, slotTemperature, List.copyOf(slotStop)));
+        profiles.put(ConversationPhase.FREE_FORM, new GenerationProfile(freeFormMaxTokens, freeFormTemperature, freeFormStop.orElse(null)));
+        this.registry = registry;
+    }
+
+    public GenerationProfile profile(ConversationPhase phase) {
+        return profiles.get(phase);
+    }
+
+    /**
+     * Applies the phase's budget, temperature and stop sequences to the request.
+     */
+    public void apply(ConversationPhase phase, MaasChatRequest request) {
+        GenerationProfile profile = profiles.get(phase);
+        request.maxTokens = profile.maxTokens();
+        request.temperature = profile.temperature();
+        request.stop = profile.stop();
+    }
+
+    public void record(ConversationPhase phase, MaasChatResponse response) {
+        if (response == null) {
+            return;
+        }
+        if (response.usage != null) {
+            registry.summary("maas.completion.tokens", "phase", phase.key()).record(response.usage.completion_tokens);
+        }
+        if (response.choices != null && !response.choices.isEmpty()) {
+            String finishReason = response.choices.get(0).finish_reason;
+            registry.counter("maas.finish.reason", "phase", phase.key(),
+                    "reason", finishReason != null ? finishReason : "unknown").increment();
+        }
+    }
+}
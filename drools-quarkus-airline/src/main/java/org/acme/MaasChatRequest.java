@@ -1,15 +1,29 @@
 package org.acme;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
 
 public class MaasChatRequest {
+    @JsonProperty("model")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String model;
+
     @JsonProperty("messages")
     public List<Message> messages;
     
     @JsonProperty("max_tokens")
     public Integer maxTokens;
 
+    @JsonProperty("temperature")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Double temperature;
+
+    @JsonProperty("stop")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public List<String> stop;
+
     public MaasChatRequest() {
     }
 
@@ -24,6 +38,12 @@ public class MaasChatRequest {
         
         @JsonProperty("content")
         public String content;
+
+        // Serialized form cached by MaasRequestEncoder; messages are not modified once sent.
+        // Volatile because shared messages such as the system prompt are encoded by
+        // whichever request thread gets to them first
+        @JsonIgnore
+        transient volatile byte[] json;
         
         public Message() {
         }
@@ -26,5 +26,10 @@ public class MaasChatResponse {
         public int prompt_tokens;
         public int total_tokens;
         public int completion_tokens;
+        public PromptTokensDetails prompt_tokens_details;
+    }
+
+    public static class PromptTokensDetails {
+        public int cached_tokens;
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package org.acme;
 
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
@@ -8,6 +9,7 @@ import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.annotation.RegisterProvider;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import io.smallrye.mutiny.Uni;
+import io.vertx.core.buffer.Buffer;
 
 @RegisterRestClient(configKey = "maas-api")
 @RegisterProvider(MaasClientRequestFilter.class)
@@ -19,4 +21,17 @@ public interface MaasClient {
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     Uni<MaasChatResponse> getChatCompletion(MaasChatRequest request);
+
+    // Same call with a body already encoded by MaasRequestEncoder
+    @POST
+    @Path("/chat/completions")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    Uni<MaasChatResponse> getChatCompletion(Buffer body);
+
+    // Cheap authenticated call, used to open pooled connections during warm-up
+    @GET
+    @Path("/models")
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<String> listModels();
 }
\ No newline at end of file
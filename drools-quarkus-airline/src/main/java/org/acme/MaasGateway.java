@@ -0,0 +1,38 @@
+package org.acme;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * Sends chat completions to the MaaS backend using the pre-serialized request body.
+ */
+@ApplicationScoped
+public class MaasGateway {
+
+    @Inject
+    ModelRouter modelRouter;
+
+    @Inject
+    MaasRequestEncoder requestEncoder;
+
+    @Inject
+    PromptAssembler promptAssembler;
+
+    @Inject
+    GenerationProfiles generationProfiles;
+
+    /**
+     * Sends the request on the given route with the generation settings of the given
+     * conversation phase.
+     */
+    public MaasChatResponse complete(MaasChatRequest request, ConversationPhase phase, ModelRouter.Route route) {
+        generationProfiles.apply(phase, request);
+        modelRouter.apply(route, request);
+        long start = System.nanoTime();
+        MaasChatResponse response = modelRouter.send(route, requestEncoder.encode(request));
+        promptAssembler.recordUsage(response, start);
+        generationProfiles.record(phase, response);
+        modelRouter.record(route, response);
+        return response;
+    }
+}
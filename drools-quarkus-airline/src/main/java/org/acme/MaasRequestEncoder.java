@@ -0,0 +1,123 @@
+package org.acme;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes {@link MaasChatRequest} bodies from pre-serialized message fragments.
+ *
+ * Each message is serialized by Jackson once and its bytes are kept on the message,
+ * so a turn only pays for the newest messages; the rest of the body is a copy of
+ * cached fragments into a single, exactly sized buffer. The body is byte for byte
+ * what Jackson writes for the request, with the fields in declaration order.
+ */
+@ApplicationScoped
+public class MaasRequestEncoder {
+
+    private static final byte[] MESSAGES_START = "\"messages\":[".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGES_END = "]".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_START = "{".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_END = "}".getBytes(StandardCharsets.UTF_8);
+    private static final byte COMMA = ',';
+
+    private final ObjectMapper mapper;
+    private final Counter encodedBytes;
+    private final Counter reusedBytes;
+
+    @Inject
+    public MaasRequestEncoder(ObjectMapper mapper, MeterRegistry registry) {
+        this.mapper = mapper;
+        this.encodedBytes = registry.counter("maas.request.encoded.bytes");
+        this.reusedBytes = registry.counter("maas.request.reused.bytes");
+    }
+
+    public Buffer encode(MaasChatRequest request) {
+        List<MaasChatRequest.Message> messages = request.messages;
+        byte[][] fragments = new byte[messages.size()][];
+        int size = OBJECT_START.length + MESSAGES_START.length + MESSAGES_END.length + OBJECT_END.length
+                + Math.max(0, messages.size() - 1);
+        for (int i = 0; i < fragments.length; i++) {
+            fragments[i] = fragment(messages.get(i));
+            size += fragments[i].length;
+        }
+        byte[] model = request.model != null ? field("", "model", request.model, ",") : new byte[0];
+        byte[] options = options(request);
+        size += model.length + options.length;
+
+        Buffer body = Buffer.buffer(size);
+        body.appendBytes(OBJECT_START);
+        body.appendBytes(model);
+        body.appendBytes(MESSAGES_START);
+        for (int i = 0; i < fragments.length; i++) {
+            if (i > 0) {
+                body.appendByte(COMMA);
+            }
+            body.appendBytes(fragments[i]);
+        }
+        body.appendBytes(MESSAGES_END);
+        body.appendBytes(options);
+        body.appendBytes(OBJECT_END);
+        return body;
+    }
+
+    private byte[] fragment(MaasChatRequest.Message message) {
+        // A volatile read, since system prompt messages are shared between threads
+        byte[] json = message.json;
+        if (json != null) {
+            reusedBytes.increment(json.length);
+            return json;
+        }
+        json = write(message);
+        message.json = json;
+        encodedBytes.increment(json.length);
+        return json;
+    }
+
+    // The generation settings that follow the messages; max_tokens is always written,
+    // as null if unset, while the others are left out when null
+    private byte[] options(MaasChatRequest request) {
+        byte[][] fields = {
+            field(",", "max_tokens", request.maxTokens, ""),
+            request.temperature != null ? field(",", "temperature", request.temperature, "") : new byte[0],
+            request.stop != null ? field(",", "stop", request.stop, "") : new byte[0]
+        };
+        int size = 0;
+        for (byte[] field : fields) {
+            size += field.length;
+        }
+        byte[] options = new byte[size];
+        int offset = 0;
+        for (byte[] field : fields) {
+            System.arraycopy(field, 0, options, offset, field.length);
+            offset += field.length;
+        }
+        return options;
+    }
+
+    // Encodes '"name":value' with separators before and after it
+    private byte[] field(String before, String name, Object value, String after) {
+        byte[] prefix = (before + "\"" + name + "\":").getBytes(StandardCharsets.UTF_8);
+        byte[] json = write(value);
+        byte[] suffix = after.getBytes(StandardCharsets.UTF_8);
+        byte[] field = new byte[prefix.length + json.length + suffix.length];
+        System.arraycopy(prefix, 0, field, 0, prefix.length);
+        System.arraycopy(json, 0, field, prefix.length, json.length);
+        System.arraycopy(suffix, 0, field, prefix.length + json.length, suffix.length);
+        return field;
+    }
+
+    private byte[] write(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize MaaS request: " + e.getMessage(), e);
+        }
+    }
+}
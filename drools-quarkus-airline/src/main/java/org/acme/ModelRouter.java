@@ -0,0 +1,182 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.rest.client.reactive.QuarkusRestClientBuilder;
+import io.vertx.core.buffer.Buffer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.client.ClientRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.jboss.logging.Logger;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends each turn to a small, fast model or a larger one.
+ *
+ * Greetings and claim slot collection (derived from {@link CompensationState} by
+ * {@link ConversationPhase}) go to the small model, as do short free-form messages.
+ * Long messages, messages with policy or complaint keywords and turns grounded with
+ * policy passages go to the large model. Each route has its own endpoint, model name,
+ * timeout, token cap and price under {@code airline.routing.<route>.*}; a route
+ * without a URL uses the {@code maas-api} client.
+ */
+@ApplicationScoped
+public class ModelRouter {
+
+    private static final Logger LOG = Logger.getLogger(ModelRouter.class);
+
+    public enum Route {
+        SMALL("small", Duration.ofSeconds(10)),
+        LARGE("large", Duration.ofSeconds(30));
+
+        private final String key;
+        private final Duration defaultTimeout;
+
+        Route(String key, Duration defaultTimeout) {
+            this.key = key;
+            this.defaultTimeout = defaultTimeout;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    private record RouteConfig(MaasClient client, Optional<String> model, Duration timeout, Optional<Integer> maxTokens,
+                               double promptCostPer1k, double completionCostPer1k,
+                               Timer latency, Counter cost, Counter promptTokens, Counter completionTokens) {
+    }
+
+    private final Map<Route, RouteConfig> routes = new EnumMap<>(Route.class);
+    private final int largeMinWords;
+    private final Set<String> largeKeywords;
+
+    @Inject
+    public ModelRouter(@RestClient MaasClient defaultClient,
+                       Config config,
+                       @ConfigProperty(name = "maas-api.api-key") String defaultApiKey,
+                       @ConfigProperty(name = "airline.routing.large-min-words", defaultValue = "25") int largeMinWords,
+                       @ConfigProperty(name = "airline.routing.large-keywords",
+                               defaultValue = "why,explain,policy,refund,rights,regulation,unfair,complaint,compare,difference")
+                       List<String> largeKeywords,
+                       MeterRegistry registry) {
+        this.largeMinWords = largeMinWords;
+        this.largeKeywords = Set.copyOf(largeKeywords);
+        for (Route route : Route.values()) {
+            String prefix = "airline.routing." + route.key() + ".";
+            Optional<String> url = config.getOptionalValue(prefix + "url", String.class);
+            Duration timeout = config.getOptionalValue(prefix + "timeout", Duration.class).orElse(route.defaultTimeout);
+            MaasClient client = url
+                .map(u -> buildClient(u, config.getOptionalValue(prefix + "api-key", String.class).orElse(defaultApiKey), timeout))
+                .orElse(defaultClient);
+            routes.put(route, new RouteConfig(
+                client,
+                config.getOptionalValue(prefix + "model", String.class),
+                timeout,
+                config.getOptionalValue(prefix + "max-tokens", Integer.class),
+                config.getOptionalValue(prefix + "cost-per-1k-prompt-tokens", Double.class).orElse(0.0),
+                config.getOptionalValue(prefix + "cost-per-1k-completion-tokens", Double.class).orElse(0.0),
+                registry.timer("maas.route.latency", "route", route.key()),
+                registry.counter("maas.route.cost", "route", route.key()),
+                registry.counter("maas.route.tokens", "route", route.key(), "type", "prompt"),
+                registry.counter("maas.route.tokens", "route", route.key(), "type", "completion")));
+            LOG.info("Model route " + route.key() + ": " + url.orElse("maas-api") + ", model "
+                    + routes.get(route).model().orElse("(server default)") + ", timeout " + timeout);
+        }
+    }
+
+    /**
+     * Picks the route for a turn from its phase and the user message.
+     * @param grounded Whether policy passages are attached to the turn.
+     */
+    public Route classify(ConversationPhase phase, String message, boolean grounded) {
+        if (phase != ConversationPhase.FREE_FORM) {
+            return Route.SMALL;
+        }
+        if (grounded) {
+            return Route.LARGE;
+        }
+        String[] words = message.toLowerCase(Locale.ROOT).split("[^a-z0-9']+");
+        if (words.length >= largeMinWords) {
+            return Route.LARGE;
+        }
+        for (String word : words) {
+            if (largeKeywords.contains(word)) {
+                return Route.LARGE;
+            }
+        }
+        return Route.SMALL;
+    }
+
+    /**
+     * Sets the route's model on the request and caps its token budget.
+     */
+    public void apply(Route route, MaasChatRequest request) {
+        RouteConfig config = routes.get(route);
+        request.model = config.model().orElse(null);
+        if (config.maxTokens().isPresent() && (request.maxTokens == null || request.maxTokens > config.maxTokens().get())) {
+            request.maxTokens = config.maxTokens().get();
+        }
+    }
+
+    /**
+     * Sends an encoded request on the route, failing once the route's timeout elapses.
+     */
+    public MaasChatResponse send(Route route, Buffer body) {
+        RouteConfig config = routes.get(route);
+        long start = System.nanoTime();
+        try {
+            return config.client().getChatCompletion(body).await().atMost(config.timeout());
+        } finally {
+            config.latency().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void record(Route route, MaasChatResponse response) {
+        if (response == null || response.usage == null) {
+            return;
+        }
+        RouteConfig config = routes.get(route);
+        config.promptTokens().increment(response.usage.prompt_tokens);
+        config.completionTokens().increment(response.usage.completion_tokens);
+        config.cost().increment(response.usage.prompt_tokens / 1000.0 * config.promptCostPer1k()
+                + response.usage.completion_tokens / 1000.0 * config.completionCostPer1k());
+    }
+
+    /**
+     * The distinct clients behind the routes, for connection warm-up.
+     */
+    public List<MaasClient> clients() {
+        Set<MaasClient> clients = new LinkedHashSet<>();
+        for (RouteConfig config : routes.values()) {
+            clients.add(config.client());
+        }
+        return new ArrayList<>(clients);
+    }
+
+    private static MaasClient buildClient(String url, String apiKey, Duration timeout) {
+        return QuarkusRestClientBuilder.newBuilder()
+            .baseUri(URI.create(url))
+            .readTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+            // Runs after MaasClientRequestFilter and replaces the default key with the route's
+            .register((ClientRequestFilter) context ->
+                context.getHeaders().putSingle(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey), Priorities.USER + 100)
+            .build(MaasClient.class);
+    }
+}
@@ -0,0 +1,281 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory BM25 index over the airline policy documents in {@code policies/}.
+ * No documents are indexed unless {@code airline.policies.documents} lists them; the
+ * ones in {@code policies/samples/} are illustrative text for development only.
+ *
+ * Each {@code ## } section of a document is one passage. A policy question whose
+ * terms are almost all found in the best passage is answered with that passage
+ * without calling the LLM; otherwise the best passages are handed to the LLM as
+ * grounding for its answer.
+ */
+@ApplicationScoped
+public class PolicyIndex {
+
+    private static final Logger LOG = Logger.getLogger(PolicyIndex.class);
+
+    // BM25 parameters
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+        "a", "about", "am", "an", "and", "any", "are", "as", "at", "be", "can", "could", "do", "does", "for",
+        "from", "get", "have", "how", "i", "if", "in", "is", "it", "know", "like", "many", "me", "much", "my",
+        "need", "of", "on", "or", "our", "please", "should", "so", "tell", "that", "the", "there", "this", "to",
+        "want", "was", "we", "what", "when", "where", "which", "will", "with", "would", "you", "your");
+
+    private static final Set<String> QUESTION_WORDS = Set.of(
+        "what", "how", "when", "where", "which", "can", "do", "does", "is", "are", "may", "should", "will");
+
+    public record Passage(String document, String title, String text, int length) {
+    }
+
+    public record Hit(Passage passage, double score, double coverage) {
+    }
+
+    /**
+     * Outcome of a lookup: a passage to answer with directly, passages to ground the
+     * LLM with, or nothing.
+     */
+    public record Retrieval(Hit answer, List<Hit> context) {
+
+        static final Retrieval NONE = new Retrieval(null, List.of());
+
+        public boolean isAnswered() {
+            return answer != null;
+        }
+
+        /**
+         * Passages formatted as grounding for the LLM, or null if there are none.
+         */
+        public String grounding() {
+            if (context.isEmpty()) {
+                return null;
+            }
+            StringBuilder text = new StringBuilder("Relevant airline policy (use it if it answers the question):\n");
+            for (Hit hit : context) {
+                text.append("- ").append(hit.passage().title()).append(": ").append(hit.passage().text()).append('\n');
+            }
+            return text.toString();
+        }
+    }
+
+    // Immutable once built; postings hold (passage, term frequency) pairs
+    private record Index(List<Passage> passages, Map<String, int[]> postings, double averageLength) {
+    }
+
+    @ConfigProperty(name = "airline.policies.documents")
+    Optional<List<String>> documents;
+
+    @ConfigProperty(name = "airline.policies.answer-threshold", defaultValue = "0.8")
+    double answerThreshold;
+
+    @ConfigProperty(name = "airline.policies.context-threshold", defaultValue = "0.4")
+    double contextThreshold;
+
+    @ConfigProperty(name = "airline.policies.context-passages", defaultValue = "2")
+    int contextPassages;
+
+    private volatile Index index = new Index(List.of(), Map.of(), 1);
+
+    private Timer retrievalLatency;
+    private Counter answeredLocally;
+    private Counter grounded;
+    private Counter ungrounded;
+
+    @Inject
+    void initMetrics(MeterRegistry registry) {
+        retrievalLatency = registry.timer("policy.retrieval.latency");
+        answeredLocally = registry.counter("policy.turns", "route", "local");
+        grounded = registry.counter("policy.turns", "route", "llm-grounded");
+        ungrounded = registry.counter("policy.turns", "route", "llm");
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        long start = System.nanoTime();
+        List<Passage> passages = new ArrayList<>();
+        for (String document : documents.orElse(List.of())) {
+            try (InputStream in = PolicyIndex.class.getResourceAsStream("/policies/" + document + ".md")) {
+                if (in == null) {
+                    LOG.warn("Policy document not found: policies/" + document + ".md");
+                    continue;
+                }
+                passages.addAll(parse(document, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                LOG.error("Failed to read policy document " + document + ": " + e.getMessage(), e);
+            }
+        }
+        index = build(passages);
+        LOG.info("Indexed " + passages.size() + " policy passages with " + index.postings().size() + " terms in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Looks up the user message of a turn. Turns that are collecting claim details are
+     * not looked up, since the answers there are flight numbers, amounts and tiers.
+     */
+    public Retrieval retrieve(String message, ConversationPhase phase) {
+        if (phase == ConversationPhase.SLOT_COLLECTION) {
+            return Retrieval.NONE;
+        }
+        long start = System.nanoTime();
+        Retrieval retrieval = lookup(message);
+        retrievalLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (retrieval.isAnswered()) {
+            answeredLocally.increment();
+        } else if (!retrieval.context().isEmpty()) {
+            grounded.increment();
+        } else {
+            ungrounded.increment();
+        }
+        return retrieval;
+    }
+
+    private Retrieval lookup(String message) {
+        Index current = index;
+        List<String> queryTerms = new ArrayList<>(new LinkedHashSet<>(terms(message)));
+        if (queryTerms.isEmpty() || current.passages().isEmpty()) {
+            return Retrieval.NONE;
+        }
+        int n = current.passages().size();
+        double[] scores = new double[n];
+        double[] matchedIdf = new double[n];
+        double totalIdf = 0;
+        for (String term : queryTerms) {
+            int[] posting = current.postings().get(term);
+            int df = posting == null ? 0 : posting.length / 2;
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            totalIdf += idf;
+            if (posting == null) {
+                continue;
+            }
+            for (int i = 0; i < posting.length; i += 2) {
+                int passage = posting[i];
+                int tf = posting[i + 1];
+                double norm = 1 - B + B * current.passages().get(passage).length() / current.averageLength();
+                scores[passage] += idf * tf * (K1 + 1) / (tf + K1 * norm);
+                matchedIdf[passage] += idf;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double coverage = matchedIdf[i] / totalIdf;
+            if (scores[i] > 0 && coverage >= contextThreshold) {
+                hits.add(new Hit(current.passages().get(i), scores[i], coverage));
+            }
+        }
+        if (hits.isEmpty()) {
+            return Retrieval.NONE;
+        }
+        hits.sort((a, b) -> Double.compare(b.score(), a.score()));
+        Hit best = hits.get(0);
+        // Only questions are answered directly; a statement such as "my flight was
+        // delayed" is the start of a claim and is left to the LLM
+        if (best.coverage() >= answerThreshold && queryTerms.size() >= 2 && isQuestion(message)) {
+            return new Retrieval(best, List.of(best));
+        }
+        return new Retrieval(null, List.copyOf(hits.subList(0, Math.min(contextPassages, hits.size()))));
+    }
+
+    private static boolean isQuestion(String message) {
+        String trimmed = message.trim().toLowerCase();
+        if (trimmed.endsWith("?")) {
+            return true;
+        }
+        int space = trimmed.indexOf(' ');
+        return QUESTION_WORDS.contains(space == -1 ? trimmed : trimmed.substring(0, space));
+    }
+
+    private static List<Passage> parse(String document, String markdown) {
+        List<Passage> passages = new ArrayList<>();
+        String title = null;
+        StringBuilder text = new StringBuilder();
+        for (String line : (markdown + "\n## ").split("\n")) {
+            if (line.startsWith("## ")) {
+                if (title != null && !text.isEmpty()) {
+                    String body = text.toString().trim();
+                    passages.add(new Passage(document, title, body, terms(title + " " + body).size()));
+                }
+                title = line.substring(3).trim();
+                text.setLength(0);
+            } else if (title != null && !line.startsWith("#")) {
+                text.append(line).append(' ');
+            }
+        }
+        return passages;
+    }
+
+    private static Index build(List<Passage> passages) {
+        Map<String, List<int[]>> builder = new HashMap<>();
+        long totalLength = 0;
+        for (int i = 0; i < passages.size(); i++) {
+            Passage passage = passages.get(i);
+            totalLength += passage.length();
+            Map<String, Integer> frequencies = new LinkedHashMap<>();
+            for (String term : terms(passage.title() + " " + passage.text())) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                builder.computeIfAbsent(entry.getKey(), t -> new ArrayList<>()).add(new int[] {i, entry.getValue()});
+            }
+        }
+        Map<String, int[]> postings = new HashMap<>(builder.size() * 2);
+        for (Map.Entry<String, List<int[]>> entry : builder.entrySet()) {
+            List<int[]> list = entry.getValue();
+            int[] posting = new int[list.size() * 2];
+            for (int j = 0; j < list.size(); j++) {
+                posting[2 * j] = list.get(j)[0];
+                posting[2 * j + 1] = list.get(j)[1];
+            }
+            postings.put(entry.getKey(), posting);
+        }
+        double averageLength = passages.isEmpty() ? 1 : Math.max(1, (double) totalLength / passages.size());
+        return new Index(List.copyOf(passages), Map.copyOf(postings), averageLength);
+    }
+
+    // Lower-cased alphanumeric terms without stop words, with plurals folded
+    static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : text.toLowerCase().split("[^a-z0-9]+")) {
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    private static String stem(String token) {
+        if (token.length() > 4 && token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+}
@@ -0,0 +1,139 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the prompt sent to the MaaS backend so that the LLM server can reuse its
+ * KV cache across turns.
+ *
+ * Every conversation starts with the same system message instance, history is only
+ * ever appended to, and when it grows too long the oldest turns are dropped in whole
+ * blocks rather than on every message, so most requests share their prefix with the
+ * previous one.
+ */
+@ApplicationScoped
+public class PromptAssembler {
+
+    private static final Logger LOG = Logger.getLogger(PromptAssembler.class);
+
+    static final String SYSTEM_PROMPT =
+        "You are a helpful airline customer service agent. You assist with general flight inquiries AND compensation claims. " +
+        "DEFAULT BEHAVIOR - GENERAL CONVERSATION:\n" +
+        "- When someone says 'hi' or 'hello', respond with a friendly greeting like 'Hello! How can I help you today?'\n" +
+        "- Answer general questions about flights, booking, policies naturally\n" +
+        "- DO NOT immediately ask for flight numbers or claim details\n" +
+        "- DO NOT assume every conversation is about filing a claim\n\n" +
+        "ONLY IF they mention a flight problem (delay, cancellation, luggage issues):\n" +
+        "- Acknowledge the issue with empathy\n" +
+        "- Ask: 'Would you like help filing a compensation claim for this?'\n" +
+        "- Wait for their confirmation (yes/sure/ok)\n\n" +
+        "ONLY AFTER they confirm wanting to file:\n" +
+        "- Say: 'I'll need to collect information to process your claim.'\n" +
+        "- Collect in this order:\n" +
+        "  1. Flight number\n" +
+        "  2. Issue type (delay/cancellation/luggage issues)\n" +
+        "  3. IF delay or cancellation: ask 'How many hours was the delay/cancellation?'\n" +
+        "     IF luggage issues: SKIP duration question, go directly to step 4\n" +
+        "  4. Compensation amount - ask 'How much compensation would you like to request in dollars?'\n" +
+        "  5. Loyalty tier - ask 'What is your rewards tier: Basic, Silver, or Gold?' (MUST get one of these three words)\n" +
+        "- Ask ONE question at a time and wait for the answer\n" +
+        "- CRITICAL: Do NOT say you submitted the claim or that you'll process it - the system does that AUTOMATICALLY after you collect all pieces\n" +
+        "- After collecting loyalty tier, just say 'Thank you, I have all the information needed.' and STOP\n\n" +
+        "REMEMBER: You ONLY collect information. The backend system submits the claim automatically.";
+
+    // Shared by every conversation so the prefix is byte-identical
+    static final MaasChatRequest.Message SYSTEM_MESSAGE = new MaasChatRequest.Message("system", SYSTEM_PROMPT);
+
+    // Maximum number of turns kept after the system message
+    private static final int MAX_HISTORY_SIZE = 20;
+
+    // Number of messages dropped at once when the history is compacted
+    private static final int COMPACTION_BLOCK_SIZE = 10;
+
+    private final Counter promptTokens;
+    private final Counter cachedPromptTokens;
+    private final Counter compactions;
+    private final Timer completionLatency;
+
+    @Inject
+    public PromptAssembler(MeterRegistry registry) {
+        this.promptTokens = registry.counter("maas.prompt.tokens");
+        this.cachedPromptTokens = registry.counter("maas.prompt.cached.tokens");
+        this.compactions = registry.counter("maas.prompt.compactions");
+        this.completionLatency = registry.timer("maas.chat.completion.latency");
+    }
+
+    /**
+     * Starts a new conversation history containing only the shared system message.
+     */
+    public List<MaasChatRequest.Message> newConversation() {
+        List<MaasChatRequest.Message> history = new ArrayList<>();
+        history.add(SYSTEM_MESSAGE);
+        return history;
+    }
+
+    /**
+     * Builds the request for the given history, compacting it first if it has grown
+     * past the limit. The history is expected to end with the latest user message.
+     */
+    public MaasChatRequest assemble(List<MaasChatRequest.Message> history) {
+        if (history.isEmpty() || history.get(0) != SYSTEM_MESSAGE) {
+            history.add(0, SYSTEM_MESSAGE);
+        }
+        if (history.size() - 1 > MAX_HISTORY_SIZE) {
+            compact(history);
+        }
+        return new MaasChatRequest(history);
+    }
+
+    /**
+     * Builds the request with grounding text prepended to the latest user message. Only
+     * the request carries it; the history keeps the message as the user sent it, so the
+     * cached prefix of later turns is not affected.
+     */
+    public MaasChatRequest assemble(List<MaasChatRequest.Message> history, String grounding) {
+        MaasChatRequest request = assemble(history);
+        if (grounding == null) {
+            return request;
+        }
+        List<MaasChatRequest.Message> messages = new ArrayList<>(request.messages);
+        MaasChatRequest.Message last = messages.get(messages.size() - 1);
+        messages.set(messages.size() - 1, new MaasChatRequest.Message(last.role, grounding + "\n" + last.content));
+        request.messages = messages;
+        return request;
+    }
+
+    /**
+     * Records prompt token reuse and completion latency for a finished call.
+     */
+    public void recordUsage(MaasChatResponse response, long startNanos) {
+        completionLatency.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (response == null || response.usage == null) {
+            return;
+        }
+        promptTokens.increment(response.usage.prompt_tokens);
+        if (response.usage.prompt_tokens_details != null) {
+            cachedPromptTokens.increment(response.usage.prompt_tokens_details.cached_tokens);
+        }
+    }
+
+    // Drops the oldest block of turns, extending the cut to the next user message so a
+    // question is never separated from its answer.
+    private void compact(List<MaasChatRequest.Message> history) {
+        int cut = Math.min(1 + COMPACTION_BLOCK_SIZE, history.size() - 1);
+        while (cut < history.size() - 1 && !"user".equals(history.get(cut).role)) {
+            cut++;
+        }
+        history.subList(1, cut).clear();
+        compactions.increment();
+        LOG.info("Compacted conversation history to " + history.size() + " messages");
+    }
+}
@@ -0,0 +1,476 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.rule.FactHandle;
+import org.kie.internal.utils.KieHelper;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-runs historical claims against the current rules and a candidate rules.drl and
+ * reports the claims whose payout would change.
+ *
+ * Claims are read from NDJSON or CSV (with a header row) using the field names
+ * {@code claimId, flightNumber, flightDate, issueType, issueDuration,
+ * customerCompensation, customerLoyaltyStatus}. The reader hands batches of raw lines
+ * to one worker per core through a bounded queue, each worker keeps one session per
+ * ruleset for its whole run, and a writer streams one NDJSON line per changed claim
+ * followed by a totals line, so memory use does not depend on the size of the input.
+ * If a worker or the writer fails, the run is aborted rather than left waiting on it.
+ * With {@code --flight-ops}, delays are checked against the record for the claim's
+ * flight date; claims without a date keep their reported delay, and a CSV file must
+ * have a flightDate column.
+ *
+ * Usage: {@code java -cp <app classpath> org.acme.Readjudicator <claims.ndjson|claims.csv>
+ * <candidate.drl> [--current rules.drl] [--workers n] [--max-firings n]
+ * [--flight-ops flight-ops.bin] [--out report.ndjson]}
+ */
+public final class Readjudicator {
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int IO_BUFFER = 1 << 20;
+    // How often threads blocked on a queue check whether the run was aborted
+    private static final long POLL_MILLIS = 100;
+
+    private static final Batch END = new Batch(0, List.of());
+    private static final List<Outcome> END_OF_OUTCOMES = List.of();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private static final ObjectReader CLAIM_READER = MAPPER.readerFor(Claim.class);
+    private static final ObjectWriter REPORT_WRITER = MAPPER.writer();
+
+    private Readjudicator() {
+    }
+
+    public static class Claim {
+        public String claimId;
+        public String flightNumber;
+        public String flightDate;
+        public String issueType;
+        public int issueDuration;
+        public double customerCompensation;
+        public String customerLoyaltyStatus;
+    }
+
+    private record Batch(long firstLine, List<String> lines) {
+    }
+
+    private record Outcome(long line, Claim claim, Decision current, Decision candidate, String error) {
+    }
+
+    private record Decision(double approved, boolean manualReview) {
+    }
+
+    public record Diff(String type, long line, String claimId, String flightNumber, String issueType,
+                       String customerLoyaltyStatus, double current, double candidate, double delta,
+                       boolean currentManualReview, boolean candidateManualReview) {
+    }
+
+    public record Totals(String type, long claims, long changed, long increased, long decreased, long errors,
+                         long currentManualReview, long candidateManualReview, double currentPayout,
+                         double candidatePayout, double delta, long elapsedMillis) {
+    }
+
+    private record Options(Path claims, Path candidate, Path current, int workers, int maxFirings,
+                           Path flightOps, Path out) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Readjudicator <claims.ndjson|claims.csv> <candidate.drl> [--current rules.drl]"
+                    + " [--workers n] [--max-firings n] [--flight-ops flight-ops.bin] [--out report.ndjson]");
+            System.exit(1);
+            return;
+        }
+
+        // Keep stdout for the report; candidate rules may still print to System.out
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        if (options.flightOps() != null) {
+            FlightOpsHelper.swap(FlightOpsIndex.open(options.flightOps()));
+        }
+        KieBase current = compile(options.current() != null
+                ? Files.readString(options.current())
+                : classpathRules());
+        KieBase candidate = compile(Files.readString(options.candidate()));
+
+        Writer report = options.out() != null
+                ? Files.newBufferedWriter(options.out(), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(stdout, StandardCharsets.UTF_8), IO_BUFFER);
+        Totals totals = run(options, current, candidate, report);
+        System.err.println("Re-adjudicated " + totals.claims() + " claims in " + totals.elapsedMillis() + " ms: "
+                + totals.changed() + " changed, payout " + totals.currentPayout() + " -> " + totals.candidatePayout()
+                + " (" + (totals.delta() >= 0 ? "+" : "") + totals.delta() + "), " + totals.errors() + " errors");
+    }
+
+    private static Totals run(Options options, KieBase current, KieBase candidate, Writer report) throws Exception {
+        long start = System.nanoTime();
+        BlockingQueue<Batch> batches = new ArrayBlockingQueue<>(options.workers() * 2);
+        BlockingQueue<List<Outcome>> outcomes = new ArrayBlockingQueue<>(options.workers() * 2);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        boolean csv = options.claims().getFileName().toString().toLowerCase().endsWith(".csv");
+
+        try (BufferedReader reader = new BufferedReader(Files.newBufferedReader(options.claims(), StandardCharsets.UTF_8), IO_BUFFER)) {
+            Map<String, Integer> columns = csv ? header(reader.readLine()) : null;
+            if (columns != null && options.flightOps() != null && !columns.containsKey("flightDate")) {
+                // Without dates no row could be checked against the flight operations data
+                throw new IllegalArgumentException("--flight-ops needs a flightDate column in " + options.claims());
+            }
+            long firstLine = csv ? 2 : 1;
+
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < options.workers(); i++) {
+                Worker worker = new Worker(current, candidate, options.maxFirings(), columns, batches, outcomes, failure);
+                workers.add(Thread.ofPlatform().name("readjudicator-" + i).start(worker));
+            }
+            TotalsWriter totalsWriter = new TotalsWriter(outcomes, report, failure);
+            Thread writer = Thread.ofPlatform().name("readjudicator-writer").start(totalsWriter);
+
+            List<String> lines = new ArrayList<>(BATCH_SIZE);
+            long lineNumber = firstLine;
+            String line;
+            boolean queued = true;
+            try {
+                while (queued && (line = reader.readLine()) != null) {
+                    lines.add(line);
+                    if (lines.size() == BATCH_SIZE) {
+                        queued = put(batches, new Batch(lineNumber, lines), failure);
+                        lineNumber += lines.size();
+                        lines = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (queued && !lines.isEmpty()) {
+                    queued = put(batches, new Batch(lineNumber, lines), failure);
+                }
+                for (int i = 0; queued && i < workers.size(); i++) {
+                    queued = put(batches, END, failure);
+                }
+            } catch (Exception e) {
+                // Stops the workers and the writer too
+                failure.compareAndSet(null, e);
+                throw e;
+            }
+            // After a failure the other threads notice it within POLL_MILLIS and exit
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            if (failure.get() == null) {
+                put(outcomes, END_OF_OUTCOMES, failure);
+            }
+            writer.join();
+            if (failure.get() != null) {
+                throw new IOException("Re-adjudication aborted: " + failure.get(), failure.get());
+            }
+            return totalsWriter.finish((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // Queues the item, returning false instead if the run has been aborted
+    private static <T> boolean put(BlockingQueue<T> queue, T item, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Takes the next item, or returns null if the run has been aborted
+    private static <T> T take(BlockingQueue<T> queue, AtomicReference<Throwable> failure) throws InterruptedException {
+        T item;
+        while ((item = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+            if (failure.get() != null) {
+                return null;
+            }
+        }
+        return item;
+    }
+
+    private static final class Worker implements Runnable {
+        private final KieBase currentBase;
+        private final KieBase candidateBase;
+        private final int maxFirings;
+        private final Map<String, Integer> columns;
+        private final BlockingQueue<Batch> batches;
+        private final BlockingQueue<List<Outcome>> outcomes;
+        private final AtomicReference<Throwable> failure;
+        private KieSession current;
+        private KieSession candidate;
+
+        Worker(KieBase currentBase, KieBase candidateBase, int maxFirings, Map<String, Integer> columns,
+               BlockingQueue<Batch> batches, BlockingQueue<List<Outcome>> outcomes, AtomicReference<Throwable> failure) {
+            this.currentBase = currentBase;
+            this.candidateBase = candidateBase;
+            this.maxFirings = maxFirings;
+            this.columns = columns;
+            this.batches = batches;
+            this.outcomes = outcomes;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                current = currentBase.newKieSession();
+                candidate = candidateBase.newKieSession();
+                Batch batch;
+                while ((batch = take(batches, failure)) != null && batch != END) {
+                    List<Outcome> results = new ArrayList<>(batch.lines().size());
+                    long lineNumber = batch.firstLine();
+                    for (String line : batch.lines()) {
+                        if (!line.isBlank()) {
+                            results.add(evaluate(lineNumber, line));
+                        }
+                        lineNumber++;
+                    }
+                    if (!put(outcomes, results, failure)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                if (current != null) {
+                    current.dispose();
+                }
+                if (candidate != null) {
+                    candidate.dispose();
+                }
+            }
+        }
+
+        private Outcome evaluate(long lineNumber, String line) {
+            Claim claim;
+            try {
+                claim = columns != null ? fromCsv(line, columns) : CLAIM_READER.readValue(line);
+            } catch (IOException | RuntimeException e) {
+                return new Outcome(lineNumber, null, null, null, "Unparseable claim: " + e.getMessage());
+            }
+            try {
+                Decision currentDecision = decide(current, claim);
+                Decision candidateDecision = decide(candidate, claim);
+                return new Outcome(lineNumber, claim, currentDecision, candidateDecision, null);
+            } catch (RuntimeException e) {
+                // A failed consequence can leave facts or activations behind
+                current.dispose();
+                candidate.dispose();
+                current = currentBase.newKieSession();
+                candidate = candidateBase.newKieSession();
+                return new Outcome(lineNumber, claim, null, null, e.getMessage());
+            }
+        }
+
+        private Decision decide(KieSession session, Claim claim) {
+            FlightIssue issue = new FlightIssue(claim.flightNumber, claim.issueType, claim.issueDuration,
+                    claim.customerCompensation, claim.customerLoyaltyStatus);
+            if (claim.flightDate != null && !claim.flightDate.isBlank()) {
+                issue.setFlightDate(LocalDate.parse(claim.flightDate.trim()));
+            }
+            session.insert(issue);
+            // One firing past the limit tells a runaway apart from a claim that needs exactly the limit
+            int fired = session.fireAllRules(maxFirings + 1);
+            // Facts inserted by the rules must not leak into the next claim
+            for (FactHandle handle : new ArrayList<>(session.getFactHandles())) {
+                session.delete(handle);
+            }
+            // Same outcome as the endpoint: a halted cascade pays nothing and goes to review
+            boolean manualReview = fired > maxFirings;
+            return new Decision(manualReview ? 0.0 : issue.getApprovedCompensation(), manualReview);
+        }
+    }
+
+    private static final class TotalsWriter implements Runnable {
+        private final BlockingQueue<List<Outcome>> outcomes;
+        private final Writer report;
+        private long claims;
+        private long changed;
+        private long increased;
+        private long decreased;
+        private long errors;
+        private long currentManualReview;
+        private long candidateManualReview;
+        private double currentPayout;
+        private double candidatePayout;
+        private final AtomicReference<Throwable> failure;
+
+        TotalsWriter(BlockingQueue<List<Outcome>> outcomes, Writer report, AtomicReference<Throwable> failure) {
+            this.outcomes = outcomes;
+            this.report = report;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<Outcome> results;
+                while ((results = take(outcomes, failure)) != null && results != END_OF_OUTCOMES) {
+                    for (Outcome outcome : results) {
+                        record(outcome);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                // The workers and the reader stop once they see the failure
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private void record(Outcome outcome) throws IOException {
+            claims++;
+            if (outcome.error() != null) {
+                errors++;
+                report.write("{\"type\":\"error\",\"line\":" + outcome.line() + ",\"message\":"
+                        + REPORT_WRITER.writeValueAsString(outcome.error()) + "}\n");
+                return;
+            }
+            Decision current = outcome.current();
+            Decision candidate = outcome.candidate();
+            currentPayout += current.approved();
+            candidatePayout += candidate.approved();
+            if (current.manualReview()) {
+                currentManualReview++;
+            }
+            if (candidate.manualReview()) {
+                candidateManualReview++;
+            }
+            if (current.approved() == candidate.approved() && current.manualReview() == candidate.manualReview()) {
+                return;
+            }
+            changed++;
+            if (candidate.approved() > current.approved()) {
+                increased++;
+            } else if (candidate.approved() < current.approved()) {
+                decreased++;
+            }
+            Claim claim = outcome.claim();
+            report.write(REPORT_WRITER.writeValueAsString(new Diff("diff", outcome.line(), claim.claimId,
+                    claim.flightNumber, claim.issueType, claim.customerLoyaltyStatus, current.approved(),
+                    candidate.approved(), candidate.approved() - current.approved(), current.manualReview(),
+                    candidate.manualReview())));
+            report.write('\n');
+        }
+
+        Totals finish(long elapsedMillis) throws IOException {
+            Totals totals = new Totals("totals", claims, changed, increased, decreased, errors, currentManualReview,
+                    candidateManualReview, currentPayout, candidatePayout, candidatePayout - currentPayout, elapsedMillis);
+            report.write(REPORT_WRITER.writeValueAsString(totals));
+            report.write('\n');
+            report.flush();
+            return totals;
+        }
+    }
+
+    private static Map<String, Integer> header(String line) {
+        if (line == null) {
+            throw new IllegalArgumentException("Claims file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        String[] names = line.split(",");
+        for (int i = 0; i < names.length; i++) {
+            columns.put(names[i].trim(), i);
+        }
+        return columns;
+    }
+
+    private static Claim fromCsv(String line, Map<String, Integer> columns) {
+        String[] fields = line.split(",", -1);
+        Claim claim = new Claim();
+        claim.claimId = field(fields, columns, "claimId");
+        claim.flightNumber = field(fields, columns, "flightNumber");
+        claim.flightDate = field(fields, columns, "flightDate");
+        claim.issueType = field(fields, columns, "issueType");
+        String duration = field(fields, columns, "issueDuration");
+        claim.issueDuration = duration == null || duration.isEmpty() ? 0 : Integer.parseInt(duration);
+        claim.customerCompensation = Double.parseDouble(field(fields, columns, "customerCompensation"));
+        claim.customerLoyaltyStatus = field(fields, columns, "customerLoyaltyStatus");
+        return claim;
+    }
+
+    private static String field(String[] fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= fields.length ? null : fields[index].trim();
+    }
+
+    private static KieBase compile(String drl) {
+        return new KieHelper().addContent(drl, ResourceType.DRL).build();
+    }
+
+    private static String classpathRules() throws IOException {
+        try (InputStream in = Readjudicator.class.getResourceAsStream("/org/acme/rules.drl")) {
+            if (in == null) {
+                throw new IOException("org/acme/rules.drl not found on the classpath");
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Options parse(String[] args) {
+        List<String> positional = new ArrayList<>();
+        Path current = null;
+        Path flightOps = null;
+        Path out = null;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int maxFirings = 50;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+                continue;
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--current" -> current = Path.of(value);
+                case "--workers" -> workers = Integer.parseInt(value);
+                case "--max-firings" -> maxFirings = Integer.parseInt(value);
+                case "--flight-ops" -> flightOps = Path.of(value);
+                case "--out" -> out = Path.of(value);
+                default -> throw new IllegalArgumentException("Unknown option " + arg);
+            }
+        }
+        if (positional.size() != 2) {
+            throw new IllegalArgumentException("Expected a claims file and a candidate rules file");
+        }
+        if (workers < 1 || maxFirings < 1) {
+            throw new IllegalArgumentException("--workers and --max-firings must be positive");
+        }
+        return new Options(Path.of(positional.get(0)), Path.of(positional.get(1)), current, workers, maxFirings,
+                flightOps, out);
+    }
+}
@@ -0,0 +1,138 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.kie.api.event.rule.AfterMatchFiredEvent;
+import org.kie.api.event.rule.BeforeMatchFiredEvent;
+import org.kie.api.event.rule.DefaultAgendaEventListener;
+import org.kie.api.event.rule.MatchCreatedEvent;
+import org.kie.api.runtime.KieSession;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects per-rule match and fire counts and consequence time across all claims,
+ * and caps the number of rule firings a single claim may cause.
+ *
+ * Rules that update a fact without no-loop can re-activate each other indefinitely;
+ * a claim that goes past the cap is halted and flagged as a runaway instead.
+ */
+@ApplicationScoped
+public class RuleProfiler {
+
+    private final MeterRegistry registry;
+    private final int maxFiringsPerClaim;
+    private final Map<String, RuleStats> stats = new ConcurrentHashMap<>();
+    private final Counter runaways;
+    private volatile List<String> lastRunaway = List.of();
+
+    public record RuleSnapshot(long matches, long fires, double totalMillis) {
+    }
+
+    public record Snapshot(int maxFiringsPerClaim, double runaways, List<String> lastRunaway,
+                           Map<String, RuleSnapshot> rules) {
+    }
+
+    private final class RuleStats {
+        final LongAdder matches = new LongAdder();
+        final LongAdder fires = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final Counter matchCounter;
+        final Timer consequenceTimer;
+
+        RuleStats(String rule) {
+            this.matchCounter = registry.counter("rules.matches", "rule", rule);
+            this.consequenceTimer = registry.timer("rules.consequence.time", "rule", rule);
+        }
+    }
+
+    /**
+     * Agenda listener for a single claim. Records the rules it fires and halts the
+     * session once the firing cap is reached.
+     */
+    public final class ClaimProfile extends DefaultAgendaEventListener {
+        private final KieSession kieSession;
+        private final List<String> firedRules = new ArrayList<>();
+        private long firingStart;
+        private boolean runaway;
+
+        private ClaimProfile(KieSession kieSession) {
+            this.kieSession = kieSession;
+        }
+
+        @Override
+        public void matchCreated(MatchCreatedEvent event) {
+            RuleStats ruleStats = stats(event.getMatch().getRule().getName());
+            ruleStats.matches.increment();
+            ruleStats.matchCounter.increment();
+        }
+
+        @Override
+        public void beforeMatchFired(BeforeMatchFiredEvent event) {
+            firingStart = System.nanoTime();
+        }
+
+        @Override
+        public void afterMatchFired(AfterMatchFiredEvent event) {
+            long elapsed = System.nanoTime() - firingStart;
+            String rule = event.getMatch().getRule().getName();
+            RuleStats ruleStats = stats(rule);
+            ruleStats.fires.increment();
+            ruleStats.nanos.add(elapsed);
+            ruleStats.consequenceTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            firedRules.add(rule);
+
+            if (firedRules.size() > maxFiringsPerClaim && !runaway) {
+                runaway = true;
+                runaways.increment();
+                lastRunaway = List.copyOf(firedRules);
+                kieSession.halt();
+            }
+        }
+
+        public List<String> getFiredRules() {
+            return firedRules;
+        }
+
+        public boolean isRunaway() {
+            return runaway;
+        }
+    }
+
+    @Inject
+    public RuleProfiler(MeterRegistry registry,
+                        @ConfigProperty(name = "airline.rules.max-firings-per-claim", defaultValue = "50") int maxFiringsPerClaim) {
+        this.registry = registry;
+        this.maxFiringsPerClaim = maxFiringsPerClaim;
+        this.runaways = registry.counter("rules.runaway");
+    }
+
+    /**
+     * Registers a new claim profile on the session.
+     */
+    public ClaimProfile attach(KieSession kieSession) {
+        ClaimProfile profile = new ClaimProfile(kieSession);
+        kieSession.addEventListener(profile);
+        return profile;
+    }
+
+    public Snapshot snapshot() {
+        Map<String, RuleSnapshot> rules = new TreeMap<>();
+        stats.forEach((rule, s) -> rules.put(rule,
+                new RuleSnapshot(s.matches.sum(), s.fires.sum(), s.nanos.sum() / 1_000_000.0)));
+        return new Snapshot(maxFiringsPerClaim, runaways.count(), lastRunaway, rules);
+    }
+
+    private RuleStats stats(String rule) {
+        return stats.computeIfAbsent(rule, RuleStats::new);
+    }
+}
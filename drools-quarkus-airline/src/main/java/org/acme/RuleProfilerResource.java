@@ -0,0 +1,21 @@
+package org.acme;
+
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+
+@AdminOnly
+@Path("/debug/rules")
+public class RuleProfilerResource {
+
+    @Inject
+    RuleProfiler ruleProfiler;
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public RuleProfiler.Snapshot rules() {
+        return ruleProfiler.snapshot();
+    }
+}
@@ -0,0 +1,239 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.kie.api.KieBase;
+import org.kie.api.definition.KiePackage;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieContainer;
+import org.kie.internal.utils.KieHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves the rule base for an airline tenant.
+ *
+ * The default tenant uses the classpath rules from kmodule.xml. Other tenants are
+ * compiled from {@code <airline.rules.tenants.dir>/<tenant>.drl} on first use and kept
+ * in an LRU cache bounded by the total number of rules it holds, so rarely used
+ * tenants are evicted instead of pinning heap. A tenant without rules is rejected
+ * rather than given the default rules, and a ruleset that fails to compile is not
+ * retried until {@code airline.rules.tenants.retry-after} has passed.
+ */
+@ApplicationScoped
+public class TenantRulesRegistry {
+
+    private static final Logger LOG = Logger.getLogger(TenantRulesRegistry.class);
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final String TENANT_HEADER = "X-Airline-Tenant";
+
+    private static final Pattern TENANT_ID = Pattern.compile("[a-z0-9][a-z0-9-]{0,31}");
+
+    private final KieContainer kieContainer;
+    private final Optional<String> tenantsDir;
+    private final int maxCachedRules;
+
+    // Access-ordered so the eldest entry is the least recently used tenant
+    private final LinkedHashMap<String, CachedKieBase> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Object> loadLocks = new ConcurrentHashMap<>();
+    private int cachedRules;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter unknownTenants;
+    private final Timer loadTime;
+
+    private record CachedKieBase(KieBase kieBase, int rules) {
+    }
+
+    private record CompileFailure(String message, long retryAtNanos) {
+    }
+
+    /**
+     * Thrown for a tenant that has no rules, e.g. a misspelled airline code.
+     */
+    public static class UnknownTenantException extends RuntimeException {
+        public UnknownTenantException(String tenant) {
+            super("Unknown airline tenant " + tenant);
+        }
+    }
+
+    private final Map<String, CompileFailure> failures = new ConcurrentHashMap<>();
+    private final Duration retryAfter;
+    private final Counter compileFailures;
+
+    @Inject
+    public TenantRulesRegistry(KieContainer kieContainer,
+                               @ConfigProperty(name = "airline.rules.tenants.dir") Optional<String> tenantsDir,
+                               @ConfigProperty(name = "airline.rules.cache.max-rules", defaultValue = "500") int maxCachedRules,
+                               @ConfigProperty(name = "airline.rules.tenants.retry-after", defaultValue = "60s") Duration retryAfter,
+                               MeterRegistry registry) {
+        this.kieContainer = kieContainer;
+        this.tenantsDir = tenantsDir;
+        this.maxCachedRules = maxCachedRules;
+        this.retryAfter = retryAfter;
+        this.compileFailures = registry.counter("rules.tenant.compile.failures");
+        this.hits = registry.counter("rules.tenant.cache.hits");
+        this.misses = registry.counter("rules.tenant.cache.misses");
+        this.evictions = registry.counter("rules.tenant.cache.evictions");
+        this.unknownTenants = registry.counter("rules.tenant.unknown");
+        this.loadTime = registry.timer("rules.tenant.load.time");
+        registry.gauge("rules.tenant.cache.size", this, r -> r.cacheSize());
+        registry.gauge("rules.tenant.cache.rules", this, r -> r.cachedRules());
+    }
+
+    /**
+     * Whether the tenant is the default one or has a ruleset, so requests for other
+     * tenants can be rejected before any claim is collected. Unknown tenants are
+     * counted in {@code rules.tenant.unknown}.
+     */
+    public boolean isKnown(String tenant) {
+        if (tenant == null || DEFAULT_TENANT.equals(tenant) || lookup(tenant) != null || drlFor(tenant).isPresent()) {
+            return true;
+        }
+        unknownTenants.increment();
+        return false;
+    }
+
+    /**
+     * Returns the rule base for the tenant.
+     * @throws UnknownTenantException if the tenant has no rules.
+     * @throws IllegalStateException if the tenant's rules failed to compile recently.
+     */
+    public KieBase kieBase(String tenant) {
+        if (tenant == null || DEFAULT_TENANT.equals(tenant)) {
+            return kieContainer.getKieBase();
+        }
+
+        CachedKieBase cached = lookup(tenant);
+        if (cached != null) {
+            hits.increment();
+            return cached.kieBase();
+        }
+
+        Optional<Path> drl = drlFor(tenant);
+        if (drl.isEmpty()) {
+            unknownTenants.increment();
+            LOG.warn("No rules found for tenant " + tenant);
+            throw new UnknownTenantException(tenant);
+        }
+        checkRecentFailure(tenant);
+
+        // Only one thread compiles a given tenant; others wait for its result
+        synchronized (loadLocks.computeIfAbsent(tenant, t -> new Object())) {
+            cached = lookup(tenant);
+            if (cached == null) {
+                // Threads that waited on a failed compilation fail with it
+                checkRecentFailure(tenant);
+                misses.increment();
+                try {
+                    cached = loadTime.record(() -> compile(tenant, drl.get()));
+                } catch (RuntimeException e) {
+                    compileFailures.increment();
+                    failures.put(tenant, new CompileFailure(e.getMessage(), System.nanoTime() + retryAfter.toNanos()));
+                    LOG.error("Rules for tenant " + tenant + " failed to compile, retrying after " + retryAfter
+                            + ": " + e.getMessage());
+                    throw e;
+                }
+                failures.remove(tenant);
+                store(tenant, cached);
+            }
+            return cached.kieBase();
+        }
+    }
+
+    /**
+     * Extracts the {@code tenant} parameter from a raw query string.
+     */
+    public static String tenantFromQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        for (String param : query.split("&")) {
+            if (param.startsWith("tenant=")) {
+                return param.substring("tenant=".length());
+            }
+        }
+        return null;
+    }
+
+    int cacheSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    int cachedRules() {
+        synchronized (cache) {
+            return cachedRules;
+        }
+    }
+
+    private CachedKieBase lookup(String tenant) {
+        synchronized (cache) {
+            return cache.get(tenant);
+        }
+    }
+
+    private void store(String tenant, CachedKieBase kieBase) {
+        synchronized (cache) {
+            cache.put(tenant, kieBase);
+            cachedRules += kieBase.rules();
+            Iterator<Map.Entry<String, CachedKieBase>> eldest = cache.entrySet().iterator();
+            // Always keep the tenant that was just loaded
+            while (cachedRules > maxCachedRules && cache.size() > 1) {
+                Map.Entry<String, CachedKieBase> entry = eldest.next();
+                cachedRules -= entry.getValue().rules();
+                eldest.remove();
+                evictions.increment();
+                LOG.info("Evicted rules for tenant " + entry.getKey());
+            }
+        }
+    }
+
+    private void checkRecentFailure(String tenant) {
+        CompileFailure failure = failures.get(tenant);
+        if (failure != null && System.nanoTime() - failure.retryAtNanos() < 0) {
+            throw new IllegalStateException("Rules for tenant " + tenant + " failed to compile: " + failure.message());
+        }
+    }
+
+    private Optional<Path> drlFor(String tenant) {
+        if (tenantsDir.isEmpty() || !TENANT_ID.matcher(tenant).matches()) {
+            return Optional.empty();
+        }
+        Path drl = Path.of(tenantsDir.get(), tenant + ".drl");
+        return Files.isRegularFile(drl) ? Optional.of(drl) : Optional.empty();
+    }
+
+    private CachedKieBase compile(String tenant, Path drl) {
+        LOG.info("Compiling rules for tenant " + tenant + " from " + drl);
+        try {
+            KieBase kieBase = new KieHelper()
+                .addContent(Files.readString(drl), ResourceType.DRL)
+                .build();
+            int rules = 0;
+            for (KiePackage kiePackage : kieBase.getKiePackages()) {
+                rules += kiePackage.getRules().size();
+            }
+            return new CachedKieBase(kieBase, rules);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read rules for tenant " + tenant + ": " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.acme;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+import org.kie.api.KieBase;
+import org.kie.api.runtime.KieSession;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Warms the pod up before it reports ready.
+ *
+ * Fires synthetic claims covering every rule in rules.drl on bare sessions, without
+ * the rule profiler or decision log, so they do not show up in rule metrics, runaway
+ * counts or claim.decided events. It also runs the extractor over a
+ * sample conversation, and opens connections to the MaaS endpoint, so that class
+ * loading, Rete construction, JIT compilation and the TLS handshake are not paid by
+ * the first real requests. The latency of the first requests after startup is
+ * recorded so runs with and without warm-up can be compared.
+ */
+@ApplicationScoped
+public class WarmUp {
+
+    private static final Logger LOG = Logger.getLogger(WarmUp.class);
+
+    private static final int FIRST_REQUESTS = 100;
+
+    // Issue type, duration, requested amount, loyalty tier and a preset approved amount.
+    // No claim reaches the hard cap through the other rules (at most $200 plus the $50
+    // loyalty bonus), so the last one starts above the cap.
+    private static final Object[][] CLAIMS = {
+        {"delay", 3, 100.0, "basic", 0.0},
+        {"delay", 3, 100.0, "silver", 0.0},
+        {"delay", 3, 100.0, "gold", 0.0},
+        {"delay", 1, 100.0, "basic", 0.0},
+        {"cancellation", 0, 150.0, "basic", 0.0},
+        {"cancellation", 0, 300.0, "silver", 0.0},
+        {"cancellation", 0, 150.0, "gold", 0.0},
+        {"luggage issues", 0, 100.0, "basic", 0.0},
+        {"luggage issues", 0, 100.0, "silver", 0.0},
+        {"luggage issues", 0, 100.0, "gold", 0.0},
+        {"other", 0, 600.0, "basic", 600.0},
+    };
+
+    private static final int MAX_FIRINGS = 10;
+
+    private static final String[] CONVERSATION = {
+        "hi",
+        "My flight was delayed, can you help?",
+        "yes, I want to file a claim",
+        "flight UA333",
+        "it was a delay",
+        "3 hours",
+        "I'd like to request $250 in compensation",
+        "I'm a gold member",
+        "flight #388 was cancelled",
+        "5",
+        "my luggage was lost",
+        "I want 1,200 dollars",
+        "silver",
+        "basic",
+    };
+
+    @Inject
+    TenantRulesRegistry rulesRegistry;
+
+    @Inject
+    ModelRouter modelRouter;
+
+    @ConfigProperty(name = "airline.warmup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "airline.warmup.iterations", defaultValue = "20")
+    int iterations;
+
+    @ConfigProperty(name = "airline.warmup.llm-connections", defaultValue = "4")
+    int llmConnections;
+
+    @ConfigProperty(name = "airline.warmup.llm-timeout", defaultValue = "10s")
+    Duration llmTimeout;
+
+    private volatile boolean complete;
+    private final AtomicInteger requests = new AtomicInteger();
+    private Timer firstRequests;
+
+    @Inject
+    void initMetrics(MeterRegistry registry) {
+        firstRequests = registry.timer("chat.first.requests.latency", "warmup", String.valueOf(enabled));
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            complete = true;
+            return;
+        }
+        Thread.ofVirtual().name("warm-up").start(this::run);
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Records the latency of a chat request if it is one of the first after startup.
+     */
+    public void recordRequest(long startNanos) {
+        if (requests.get() < FIRST_REQUESTS && requests.incrementAndGet() <= FIRST_REQUESTS) {
+            firstRequests.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            warmRules();
+            warmExtractor();
+            warmLlmConnections();
+        } catch (Exception e) {
+            // A failed warm-up only costs latency, it must not keep the pod unready
+            LOG.error("Warm-up failed: " + e.getMessage(), e);
+        } finally {
+            complete = true;
+            LOG.info("Warm-up completed in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+        }
+    }
+
+    private void warmRules() {
+        KieBase kieBase = rulesRegistry.kieBase(TenantRulesRegistry.DEFAULT_TENANT);
+        for (int i = 0; i < iterations; i++) {
+            for (Object[] claim : CLAIMS) {
+                KieSession kieSession = kieBase.newKieSession();
+                try {
+                    FlightIssue issue = new FlightIssue("WU" + (100 + i), (String) claim[0], (Integer) claim[1],
+                            (Double) claim[2], (String) claim[3]);
+                    issue.setApprovedCompensation((Double) claim[4]);
+                    kieSession.insert(issue);
+                    kieSession.fireAllRules(MAX_FIRINGS);
+                } finally {
+                    kieSession.dispose();
+                }
+            }
+        }
+    }
+
+    private void warmExtractor() {
+        for (int i = 0; i < iterations * 20; i++) {
+            CompensationState state = new CompensationState();
+            state.inClaimMode = true;
+            for (String message : CONVERSATION) {
+                CompensationExtractor.extractCompensationInfo(message, state);
+            }
+        }
+    }
+
+    private void warmLlmConnections() {
+        // Concurrent requests make the client pool open one connection each
+        List<Uni<String>> calls = new ArrayList<>();
+        for (MaasClient client : modelRouter.clients()) {
+            for (int i = 0; i < llmConnections; i++) {
+                calls.add(client.listModels()
+                    .onFailure().invoke(e -> LOG.warn("LLM warm-up request failed: " + e.getMessage()))
+                    .onFailure().recoverWithNull());
+            }
+        }
+        Uni.join().all(calls).andCollectFailures().await().atMost(llmTimeout);
+    }
+}
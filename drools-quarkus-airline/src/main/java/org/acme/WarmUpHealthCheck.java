@@ -0,0 +1,23 @@
+package org.acme;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Keeps the pod out of the service until {@link WarmUp} has finished.
+ */
+@Readiness
+@ApplicationScoped
+public class WarmUpHealthCheck implements HealthCheck {
+
+    @Inject
+    WarmUp warmUp;
+
+    @Override
+    public HealthCheckResponse call() {
+        return HealthCheckResponse.named("warm-up").status(warmUp.isComplete()).build();
+    }
+}
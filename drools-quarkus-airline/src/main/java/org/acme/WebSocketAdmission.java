@@ -0,0 +1,210 @@
+package org.acme;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.websockets.next.HandshakeRequest;
+import io.vertx.ext.web.Router;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control and per-connection message rate limiting for /websocket-chat.
+ *
+ * Connections are capped globally and per client IP. Each admitted connection gets a
+ * token bucket, so checking a message costs one map lookup and an uncontended lock.
+ *
+ * Connections bridged by the chatbot-ui proxy carry the browser address in
+ * {@code X-Airline-Client-Address}, which is only trusted together with the shared
+ * {@code airline.websocket.proxy-token}. Otherwise the client IP is read from
+ * {@code X-Forwarded-For}, counting back from the right over the
+ * {@code airline.websocket.trusted-proxies} entries appended by our own proxies;
+ * entries further left are set by the client and ignored. Without enough entries the
+ * socket peer address is used.
+ */
+@ApplicationScoped
+public class WebSocketAdmission {
+
+    // Set from the socket peer on every handshake, replacing any value the client sent
+    static final String PEER_ADDRESS_HEADER = "X-Airline-Peer-Address";
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    // Set by chatbot-ui's BackendProxy
+    static final String CLIENT_ADDRESS_HEADER = "X-Airline-Client-Address";
+    static final String PROXY_TOKEN_HEADER = "X-Airline-Proxy-Token";
+
+    public enum Decision {
+        ADMITTED,
+        GLOBAL_LIMIT,
+        IP_LIMIT
+    }
+
+    private final int maxConnections;
+    private final int maxConnectionsPerIp;
+    private final double messagesPerSecond;
+    private final int burst;
+    private final int trustedProxies;
+    private final byte[] proxyToken;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final Map<String, Integer> connectionsPerIp = new ConcurrentHashMap<>();
+    private final Map<String, Admission> admissions = new ConcurrentHashMap<>();
+
+    private final Counter admitted;
+    private final Counter rejectedGlobal;
+    private final Counter rejectedIp;
+    private final Counter rateLimited;
+
+    private record Admission(String clientIp, TokenBucket bucket) {
+    }
+
+    private static final class TokenBucket {
+        private final double ratePerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(double perSecond, int capacity) {
+            this.ratePerNano = perSecond / 1_000_000_000.0;
+            this.capacity = capacity;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    @Inject
+    public WebSocketAdmission(@ConfigProperty(name = "airline.websocket.max-connections", defaultValue = "1000") int maxConnections,
+                              @ConfigProperty(name = "airline.websocket.max-connections-per-ip", defaultValue = "20") int maxConnectionsPerIp,
+                              @ConfigProperty(name = "airline.websocket.messages-per-second", defaultValue = "1") double messagesPerSecond,
+                              @ConfigProperty(name = "airline.websocket.message-burst", defaultValue = "5") int burst,
+                              @ConfigProperty(name = "airline.websocket.trusted-proxies", defaultValue = "1") int trustedProxies,
+                              @ConfigProperty(name = "airline.websocket.proxy-token") Optional<String> proxyToken,
+                              MeterRegistry registry) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+        this.messagesPerSecond = messagesPerSecond;
+        this.burst = burst;
+        this.trustedProxies = trustedProxies;
+        this.proxyToken = proxyToken.map(token -> token.getBytes(StandardCharsets.UTF_8)).orElse(null);
+        this.admitted = registry.counter("websocket.connections.admitted");
+        this.rejectedGlobal = registry.counter("websocket.connections.rejected", "reason", "global");
+        this.rejectedIp = registry.counter("websocket.connections.rejected", "reason", "ip");
+        this.rateLimited = registry.counter("websocket.messages.rate.limited");
+        registry.gauge("websocket.connections.active", active);
+    }
+
+    // Runs ahead of the WebSocket upgrade, which does not expose the peer address
+    void stampPeerAddress(@Observes Router router) {
+        router.route("/websocket-chat").order(-10_000).handler(ctx -> {
+            ctx.request().headers().set(PEER_ADDRESS_HEADER,
+                ctx.request().remoteAddress() != null ? ctx.request().remoteAddress().hostAddress() : "unknown");
+            ctx.next();
+        });
+    }
+
+    /**
+     * The address of the client that opened the connection, never null.
+     */
+    public String clientIp(HandshakeRequest handshake) {
+        String proxied = handshake.header(CLIENT_ADDRESS_HEADER);
+        if (proxied != null && !proxied.isBlank() && fromTrustedProxy(handshake.header(PROXY_TOKEN_HEADER))) {
+            return proxied.trim();
+        }
+        List<String> forwardedFor = handshake.headers(FORWARDED_FOR);
+        if (trustedProxies > 0 && forwardedFor != null && !forwardedFor.isEmpty()) {
+            String[] hops = String.join(",", forwardedFor).split(",");
+            // Each trusted proxy appends the address it received the request from
+            if (hops.length >= trustedProxies) {
+                String client = hops[hops.length - trustedProxies].trim();
+                if (!client.isEmpty()) {
+                    return client;
+                }
+            }
+        }
+        String peer = handshake.header(PEER_ADDRESS_HEADER);
+        return peer != null ? peer : "unknown";
+    }
+
+    private boolean fromTrustedProxy(String token) {
+        return proxyToken != null && token != null
+                && MessageDigest.isEqual(proxyToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Admits a new connection unless a cap is reached. A null client IP is only
+     * subject to the global cap.
+     */
+    public Decision admit(String connectionId, String clientIp) {
+        if (active.incrementAndGet() > maxConnections) {
+            active.decrementAndGet();
+            rejectedGlobal.increment();
+            return Decision.GLOBAL_LIMIT;
+        }
+        if (clientIp != null && !reserveIp(clientIp)) {
+            active.decrementAndGet();
+            rejectedIp.increment();
+            return Decision.IP_LIMIT;
+        }
+        admissions.put(connectionId, new Admission(clientIp, new TokenBucket(messagesPerSecond, burst)));
+        admitted.increment();
+        return Decision.ADMITTED;
+    }
+
+    /**
+     * Releases the slot held by a connection; does nothing if it was never admitted.
+     */
+    public void release(String connectionId) {
+        Admission admission = admissions.remove(connectionId);
+        if (admission == null) {
+            return;
+        }
+        active.decrementAndGet();
+        if (admission.clientIp() != null) {
+            connectionsPerIp.computeIfPresent(admission.clientIp(), (ip, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Takes a token for an incoming message, returning false if the connection is
+     * over its rate.
+     */
+    public boolean tryAcquireMessage(String connectionId) {
+        Admission admission = admissions.get(connectionId);
+        if (admission == null || admission.bucket().tryAcquire()) {
+            return true;
+        }
+        rateLimited.increment();
+        return false;
+    }
+
+    private boolean reserveIp(String clientIp) {
+        boolean[] reserved = new boolean[1];
+        connectionsPerIp.compute(clientIp, (ip, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxConnectionsPerIp) {
+                return count;
+            }
+            reserved[0] = true;
+            return current + 1;
+        });
+        return reserved[0];
+    }
+}
@@ -1,30 +1,34 @@
 package org.acme;
 
+import io.quarkus.websockets.next.CloseReason;
+import io.quarkus.websockets.next.InboundProcessingMode;
 import io.quarkus.websockets.next.OnClose;
 import io.quarkus.websockets.next.OnOpen;
 import io.quarkus.websockets.next.OnTextMessage;
 import io.quarkus.websockets.next.WebSocket;
 import io.quarkus.websockets.next.WebSocketConnection;
-import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.logging.Logger;
 import jakarta.inject.Inject;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
-@WebSocket(path = "/websocket-chat")
+// Messages are accepted concurrently and ordered per connection by ConversationMailbox,
+// so messages sent while a reply is being generated are merged into the next turn
+@WebSocket(path = "/websocket-chat", inboundProcessingMode = InboundProcessingMode.CONCURRENT)
 public class WebSocketChatResource {
 
     private static final Logger LOG = Logger.getLogger(WebSocketChatResource.class);
     private static final Map<String, List<MaasChatRequest.Message>> conversations = new ConcurrentHashMap<>();
     private static final Map<String, CompensationState> states = new ConcurrentHashMap<>();
-    private static final int MAX_HISTORY_SIZE = 20;
+    private static final Map<String, String> tenants = new ConcurrentHashMap<>();
+    private static final String RATE_LIMITED_REPLY =
+        "You're sending messages too quickly. Please wait a moment and try again.";
 
-    @RestClient
-    MaasClient maasClient;
+    @Inject
+    MaasGateway maasGateway;
 
     @Inject
     WebSocketConnection connection;
@@ -32,66 +36,58 @@ public class WebSocketChatResource {
     @Inject
     FlighCompensationEndPoint compensationEndpoint;
 
-    private static class CompensationState {
-        String flightNumber;
-        String issueType;
-        Integer issueDuration;
-        Double compensation;
-        String loyaltyStatus;
-        boolean inClaimMode = false;
-        
-        boolean hasAllRequiredData() {
-            // Duration not required for luggage issues
-            boolean durationValid = "luggage issues".equals(issueType) || issueDuration != null;
-            
-            return flightNumber != null && 
-                   issueType != null && 
-                   durationValid &&
-                   compensation != null &&
-                   loyaltyStatus != null;
-        }
-        
-        String getMissingFields() {
-            List<String> missing = new ArrayList<>();
-            if (flightNumber == null) missing.add("flight number");
-            if (issueType == null) missing.add("issue type");
-            if (issueDuration == null && !"luggage issues".equals(issueType)) missing.add("duration");
-            if (compensation == null) missing.add("compensation amount");
-            if (loyaltyStatus == null) missing.add("loyalty status");
-            return String.join(", ", missing);
-        }
-    }
+    @Inject
+    PromptAssembler promptAssembler;
+
+    @Inject
+    WebSocketAdmission admission;
+
+    @Inject
+    WarmUp warmUp;
+
+    @Inject
+    PolicyIndex policyIndex;
+
+    @Inject
+    ModelRouter modelRouter;
+
+    @Inject
+    DecisionLog decisionLog;
+
+    @Inject
+    ConversationMailbox mailbox;
+
+    @Inject
+    TenantRulesRegistry rulesRegistry;
 
     @OnOpen
     public void onOpen() {
         String connectionId = connection.id();
-        List<MaasChatRequest.Message> history = new ArrayList<>();
-        history.add(new MaasChatRequest.Message("system", 
-            "You are a helpful airline customer service agent. You assist with general flight inquiries AND compensation claims. " +
-            "DEFAULT BEHAVIOR - GENERAL CONVERSATION:\n" +
-            "- When someone says 'hi' or 'hello', respond with a friendly greeting like 'Hello! How can I help you today?'\n" +
-            "- Answer general questions about flights, booking, policies naturally\n" +
-            "- DO NOT immediately ask for flight numbers or claim details\n" +
-            "- DO NOT assume every conversation is about filing a claim\n\n" +
-            "ONLY IF they mention a flight problem (delay, cancellation, luggage issues):\n" +
-            "- Acknowledge the issue with empathy\n" +
-            "- Ask: 'Would you like help filing a compensation claim for this?'\n" +
-            "- Wait for their confirmation (yes/sure/ok)\n\n" +
-            "ONLY AFTER they confirm wanting to file:\n" +
-            "- Say: 'I'll need to collect information to process your claim.'\n" +
-            "- Collect in this order:\n" +
-            "  1. Flight number\n" +
-            "  2. Issue type (delay/cancellation/luggage issues)\n" +
-            "  3. IF delay or cancellation: ask 'How many hours was the delay/cancellation?'\n" +
-            "     IF luggage issues: SKIP duration question, go directly to step 4\n" +
-            "  4. Compensation amount - ask 'How much compensation would you like to request in dollars?'\n" +
-            "  5. Loyalty tier - ask 'What is your rewards tier: Basic, Silver, or Gold?' (MUST get one of these three words)\n" +
-            "- Ask ONE question at a time and wait for the answer\n" +
-            "- CRITICAL: Do NOT say you submitted the claim or that you'll process it - the system does that AUTOMATICALLY after you collect all pieces\n" +
-            "- After collecting loyalty tier, just say 'Thank you, I have all the information needed.' and STOP\n\n" +
-            "REMEMBER: You ONLY collect information. The backend system submits the claim automatically."));
+        // Browsers cannot set headers on a WebSocket handshake, so also accept ?tenant=
+        String tenant = connection.handshakeRequest().header(TenantRulesRegistry.TENANT_HEADER);
+        if (tenant == null) {
+            tenant = TenantRulesRegistry.tenantFromQuery(connection.handshakeRequest().query());
+        }
+        if (!rulesRegistry.isKnown(tenant)) {
+            LOG.warn("Rejecting WebSocket connection " + connectionId + ": unknown tenant");
+            connection.closeAndAwait(new CloseReason(1008, "Unknown airline tenant"));
+            return;
+        }
+        WebSocketAdmission.Decision decision = admission.admit(connectionId, admission.clientIp(connection.handshakeRequest()));
+        if (decision != WebSocketAdmission.Decision.ADMITTED) {
+            LOG.warn("Rejecting WebSocket connection " + connectionId + ": " + decision);
+            // 1013 Try Again Later for server capacity, 1008 Policy Violation for a single client over its cap
+            connection.closeAndAwait(decision == WebSocketAdmission.Decision.GLOBAL_LIMIT
+                ? new CloseReason(1013, "Server is at capacity, please try again later")
+                : new CloseReason(1008, "Too many connections from this address"));
+            return;
+        }
+        List<MaasChatRequest.Message> history = promptAssembler.newConversation();
         conversations.put(connectionId, history);
         states.put(connectionId, new CompensationState());
+        if (tenant != null) {
+            tenants.put(connectionId, tenant);
+        }
         LOG.info("New WebSocket connection opened: " + connectionId);
     }
 
@@ -100,20 +96,42 @@ public class WebSocketChatResource {
         String connectionId = connection.id();
         conversations.remove(connectionId);
         states.remove(connectionId);
+        tenants.remove(connectionId);
+        admission.release(connectionId);
+        mailbox.remove(connectionId);
         LOG.info("WebSocket connection closed: " + connectionId);
     }
 
+    // The turn runs on a mailbox thread after this callback has returned, so the reply
+    // is sent through the connection passed in rather than the injected one
     @OnTextMessage
-    public String onMessage(String message) {
+    public void onMessage(String message, WebSocketConnection socket) {
+        String connectionId = socket.id();
+        if (!admission.tryAcquireMessage(connectionId)) {
+            socket.sendTextAndAwait(RATE_LIMITED_REPLY);
+            return;
+        }
+        long start = System.nanoTime();
+        mailbox.submit(connectionId, message, turn -> socket.isClosed() ? null : handleMessage(connectionId, turn))
+            .whenComplete((reply, failure) -> {
+                warmUp.recordRequest(start);
+                if (reply != null && !socket.isClosed()) {
+                    try {
+                        socket.sendTextAndAwait(reply);
+                    } catch (Exception e) {
+                        LOG.warn("Failed to send reply to " + connectionId + ": " + e.getMessage());
+                    }
+                }
+            });
+    }
+
+    private String handleMessage(String connectionId, String message) {
         try {
-            String connectionId = connection.id();
             List<MaasChatRequest.Message> history = conversations.get(connectionId);
             CompensationState state = states.get(connectionId);
             
             if (history == null) {
-                history = new ArrayList<>();
-                history.add(new MaasChatRequest.Message("system", 
-                    "You are a helpful airline customer service agent."));
+                history = promptAssembler.newConversation();
                 conversations.put(connectionId, history);
             }
             
@@ -122,7 +140,7 @@ public class WebSocketChatResource {
                 states.put(connectionId, state);
             }
 
-            LOG.info("WebSocket message from " + connectionId + ": " + message);
+            LOG.debugf("WebSocket message from %s: %s", connectionId, message);
 
             String lowerMessage = message.toLowerCase();
 
@@ -131,25 +149,28 @@ public class WebSocketChatResource {
                 if (lowerMessage.contains("yes") || lowerMessage.contains("sure") || 
                     lowerMessage.contains("ok") || lowerMessage.contains("file")) {
                     state.inClaimMode = true;
-                    LOG.info("Switching to claim mode");
+                    LOG.debug("Switching to claim mode");
                 }
             }
 
             // Extract information from user message if in claim mode
             if (state.inClaimMode) {
-                extractCompensationInfo(message, state);
+                CompensationExtractor.extractCompensationInfo(message, state);
             }
             
-            LOG.info("Current state - Flight: " + state.flightNumber + ", Issue: " + state.issueType + 
-                    ", Duration: " + state.issueDuration + ", Compensation: " + state.compensation + 
-                    ", Loyalty: " + state.loyaltyStatus + ", InClaimMode: " + state.inClaimMode);
+            if (LOG.isDebugEnabled()) {
+                LOG.debugf("Current state - Flight: %s, Issue: %s, Duration: %s, Compensation: %s, Loyalty: %s, InClaimMode: %s",
+                        state.flightNumber, state.issueType, state.issueDuration, state.compensation,
+                        state.loyaltyStatus, state.inClaimMode);
+            }
 
             // If we have all data, automatically submit to Drools
             if (state.hasAllRequiredData()) {
-                LOG.info("All data collected, automatically processing compensation with Drools - Flight: " + state.flightNumber);
+                LOG.debugf("All data collected, processing compensation with Drools - Flight: %s", state.flightNumber);
                 
                 try {
                     String result = compensationEndpoint.flightCompensation(
+                        tenants.getOrDefault(connectionId, TenantRulesRegistry.DEFAULT_TENANT),
                         state.flightNumber,
                         state.issueType,
                         state.issueDuration != null ? state.issueDuration : 0, // Use 0 for luggage
@@ -193,7 +214,8 @@ public class WebSocketChatResource {
                     
                     // Reset state after processing
                     states.put(connectionId, new CompensationState());
-                    
+
+                    decisionLog.chatTurn("websocket", connectionId, "rules");
                     return responseMessage;
                     
                 } catch (Exception e) {
@@ -204,20 +226,27 @@ public class WebSocketChatResource {
             }
 
             // Otherwise, continue normal conversation with LLM to collect more info
-            if (history.size() > MAX_HISTORY_SIZE) {
-                MaasChatRequest.Message systemMsg = history.get(0);
-                history.clear();
-                history.add(systemMsg);
-            }
-
+            ConversationPhase phase = ConversationPhase.of(state, history, message);
             history.add(new MaasChatRequest.Message("user", message));
 
-            MaasChatRequest request = new MaasChatRequest(history);
-            MaasChatResponse response = maasClient.getChatCompletion(request).await().indefinitely();
+            // Policy questions the documents answer outright skip the LLM
+            PolicyIndex.Retrieval retrieval = policyIndex.retrieve(message, phase);
+            if (retrieval.isAnswered()) {
+                String answer = retrieval.answer().passage().text();
+                history.add(new MaasChatRequest.Message("assistant", answer));
+                decisionLog.chatTurn("websocket", connectionId, "policy");
+                return answer;
+            }
+
+            String grounding = retrieval.grounding();
+            MaasChatRequest request = promptAssembler.assemble(history, grounding);
+            ModelRouter.Route route = modelRouter.classify(phase, message, grounding != null);
+            MaasChatResponse response = maasGateway.complete(request, phase, route);
 
             if (response.choices != null && !response.choices.isEmpty()) {
                 String botResponse = response.choices.get(0).message.content;
                 history.add(new MaasChatRequest.Message("assistant", botResponse));
+                decisionLog.chatTurn("websocket", connectionId, "llm-" + route.key());
                 return botResponse;
             } else {
                 return "I'm sorry, I couldn't process your request at this time.";
@@ -228,92 +257,4 @@ public class WebSocketChatResource {
             return "Error: " + e.getMessage();
         }
     }
-
-    private void extractCompensationInfo(String message, CompensationState state) {
-        String lowerMessage = message.toLowerCase();
-        
-        // Extract flight number
-        Pattern flightPattern = Pattern.compile(
-            "(?:flight\\s*(?:number|#)?\\s*:?\\s*)?([A-Z]{2}\\d{2,4})|(?:flight\\s*#?\\s*)(\\d{2,4})", 
-            Pattern.CASE_INSENSITIVE
-        );
-        Matcher flightMatcher = flightPattern.matcher(message);
-        if (flightMatcher.find() && state.flightNumber == null) {
-            if (flightMatcher.group(1) != null) {
-                state.flightNumber = flightMatcher.group(1);
-            } else if (flightMatcher.group(2) != null) {
-                state.flightNumber = "FL" + flightMatcher.group(2);
-            }
-        }
-        
-        // Extract issue type
-        if (lowerMessage.contains("delay") && state.issueType == null) {
-            state.issueType = "delay";
-        } else if (lowerMessage.contains("cancel") && state.issueType == null) {
-            state.issueType = "cancellation";
-        } else if ((lowerMessage.contains("luggage") || lowerMessage.contains("baggage") || 
-                   lowerMessage.contains("bag") || lowerMessage.contains("lost") || 
-                   lowerMessage.contains("damaged") || lowerMessage.contains("missing")) && state.issueType == null) {
-            state.issueType = "luggage issues";
-        }
-        
-        // Extract duration - only for delay/cancellation, not for luggage
-        if (!"luggage issues".equals(state.issueType) &&
-            !lowerMessage.contains("$") && 
-            !lowerMessage.contains("dollar") && 
-            !lowerMessage.contains("compensation") && 
-            !lowerMessage.contains("request") &&
-            state.issueDuration == null) {
-            
-            // First try with hour/day keywords
-            Pattern durationPattern = Pattern.compile("(\\d+)\\s*(?:hour|hr|h|day)s?", Pattern.CASE_INSENSITIVE);
-            Matcher durationMatcher = durationPattern.matcher(message);
-            if (durationMatcher.find()) {
-                state.issueDuration = Integer.parseInt(durationMatcher.group(1));
-            } else {
-                // If no keywords, check if the message is JUST a number (for when user responds with just "3")
-                String trimmed = message.trim();
-                if (trimmed.matches("\\d+")) {
-                    int num = Integer.parseInt(trimmed);
-                    // Only accept reasonable hour values (1-72 hours)
-                    if (num >= 1 && num <= 72) {
-                        state.issueDuration = num;
-                    }
-                }
-            }
-        }
-        
-        // Extract compensation amount
-        if ((lowerMessage.contains("$") || 
-             lowerMessage.contains("dollar") || 
-             lowerMessage.contains("compensation") ||
-             lowerMessage.contains("request") ||
-             lowerMessage.contains("want") ||
-             lowerMessage.contains("seeking")) && 
-            state.compensation == null) {
-            Pattern compensationPattern = Pattern.compile("\\$?([0-9,]+)(?:\\s*dollars?)?", Pattern.CASE_INSENSITIVE);
-            Matcher compensationMatcher = compensationPattern.matcher(message);
-            if (compensationMatcher.find()) {
-                String amountStr = compensationMatcher.group(1).replace(",", "");
-                try {
-                    double amount = Double.parseDouble(amountStr);
-                    // Accept any positive amount up to $10,000
-                    if (amount > 0 && amount <= 10000) {
-                        state.compensation = amount;
-                    }
-                } catch (NumberFormatException e) {
-                    // Ignore invalid numbers
-                }
-            }
-        }
-        
-        // Extract loyalty status
-        if ((lowerMessage.contains("gold") || lowerMessage.contains("gold member")) && state.loyaltyStatus == null) {
-            state.loyaltyStatus = "gold";
-        } else if ((lowerMessage.contains("silver") || lowerMessage.contains("silver member")) && state.loyaltyStatus == null) {
-            state.loyaltyStatus = "silver";
-        } else if ((lowerMessage.contains("basic") || lowerMessage.contains("basic member")) && state.loyaltyStatus == null) {
-            state.loyaltyStatus = "basic";
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package org.acme;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CompensationRulesTest {
+
+    private static final int MAX_FIRINGS = 50;
+
+    private static KieBase rules;
+
+    private final RuleProfiler ruleProfiler = new RuleProfiler(new SimpleMeterRegistry(), MAX_FIRINGS);
+
+    @BeforeAll
+    static void compile() throws IOException {
+        try (InputStream in = CompensationRulesTest.class.getResourceAsStream("/org/acme/rules.drl")) {
+            String drl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            rules = new KieHelper().addContent(drl, ResourceType.DRL).build();
+        }
+    }
+
+    @Test
+    void addsTheLoyaltyBonusToAGoldCancellationOnce() {
+        assertEquals(200.0, decide(new FlightIssue("UA100", "cancellation", 0, 150.0, "gold")));
+        assertEquals(250.0, decide(new FlightIssue("UA101", "cancellation", 0, 300.0, "gold")));
+    }
+
+    @Test
+    void leavesOtherCancellationsWithoutTheBonus() {
+        assertEquals(150.0, decide(new FlightIssue("UA102", "cancellation", 0, 150.0, "silver")));
+        assertEquals(200.0, decide(new FlightIssue("UA103", "cancellation", 0, 300.0, "basic")));
+    }
+
+    // Fails if the claim trips the firing cap, as the endpoint would flag it for manual review
+    private double decide(FlightIssue issue) {
+        KieSession session = rules.newKieSession();
+        try {
+            RuleProfiler.ClaimProfile profile = ruleProfiler.attach(session);
+            session.insert(issue);
+            session.fireAllRules();
+            assertFalse(profile.isRunaway(), "Halted after " + profile.getFiredRules());
+            return issue.getApprovedCompensation();
+        } finally {
+            session.dispose();
+        }
+    }
+}
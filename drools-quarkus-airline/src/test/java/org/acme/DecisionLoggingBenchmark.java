@@ -0,0 +1,156 @@
+package org.acme;
+
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.kie.api.KieBase;
+import org.kie.api.io.ResourceType;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.utils.KieHelper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Claim throughput with the per-claim INFO logging and printing rules that were
+ * replaced by {@link DecisionLog}, against decision events at several sample rates.
+ *
+ * Each variant decides the same claims on one thread, from session creation to the
+ * log output, so the difference is the cost of logging. Run with
+ * {@code mvn test -Dtest=DecisionLoggingBenchmark -Dbenchmark=true}; set
+ * {@code -Dbenchmark.claims=n} to change the number of measured claims. Log output
+ * goes to the default synchronous console handler here, so the production async
+ * handlers would narrow the gap on request threads.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class DecisionLoggingBenchmark {
+
+    private static final Logger LEGACY_LOG = Logger.getLogger(FlighCompensationEndPoint.class);
+
+    private static final int MAX_FIRINGS = 50;
+    private static final int WARM_UP_CLAIMS = 20_000;
+
+    // Gold cancellations are left out: the legacy rules re-apply the loyalty bonus until the firing limit
+    private static final FlightIssue[] CLAIMS = {
+        new FlightIssue("UA100", "delay", 3, 100.0, "basic"),
+        new FlightIssue("UA101", "delay", 4, 100.0, "silver"),
+        new FlightIssue("UA102", "delay", 5, 100.0, "gold"),
+        new FlightIssue("UA103", "delay", 1, 100.0, "basic"),
+        new FlightIssue("UA104", "cancellation", 0, 150.0, "basic"),
+        new FlightIssue("UA105", "cancellation", 0, 300.0, "silver"),
+        new FlightIssue("UA106", "luggage issues", 0, 100.0, "basic"),
+        new FlightIssue("UA107", "luggage issues", 0, 100.0, "silver"),
+        new FlightIssue("UA108", "luggage issues", 0, 100.0, "gold"),
+    };
+
+    private interface Variant {
+        double decide(KieBase kieBase, FlightIssue claim);
+    }
+
+    @Test
+    void compareThroughput() throws IOException {
+        int claims = Integer.getInteger("benchmark.claims", 200_000);
+        KieBase legacyRules = compile(resource("/org/acme/rules-println.drl"));
+        KieBase rules = compile(resource("/org/acme/rules.drl"));
+
+        List<String> results = new ArrayList<>();
+        double legacyTotal = run("per-claim INFO + println", legacyRules, this::legacy, claims, results);
+        for (double sampleRate : new double[] {1.0, 0.1, 0.0}) {
+            DecisionLog decisionLog = new DecisionLog();
+            decisionLog.sampleRate = sampleRate;
+            double total = run("decision log, sample-rate " + sampleRate, rules,
+                    (kieBase, claim) -> sampled(decisionLog, kieBase, claim), claims, results);
+            assertEquals(legacyTotal, total, 0.001, "Both rulesets must approve the same amounts");
+        }
+        // stdout carries the rule output of the baseline, so report on stderr
+        results.forEach(System.err::println);
+    }
+
+    private static double run(String name, KieBase kieBase, Variant variant, int claims, List<String> results) {
+        for (int i = 0; i < WARM_UP_CLAIMS; i++) {
+            variant.decide(kieBase, copy(CLAIMS[i % CLAIMS.length]));
+        }
+        double total = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < claims; i++) {
+            total += variant.decide(kieBase, copy(CLAIMS[i % CLAIMS.length]));
+        }
+        long elapsed = System.nanoTime() - start;
+        results.add(String.format("%-36s %,10.0f claims/s %8.2f us/claim", name,
+                claims / (elapsed / 1_000_000_000.0), elapsed / 1_000.0 / claims));
+        return total / claims;
+    }
+
+    // The endpoint as it was: about 15 concatenated INFO lines per claim
+    private double legacy(KieBase kieBase, FlightIssue issue) {
+        LEGACY_LOG.info("=== Starting compensation processing ===");
+        LEGACY_LOG.info("Tenant: default, Flight: " + issue.getFlightNumber() + ", Issue: " + issue.getIssueType()
+                + ", Duration: " + issue.getIssueDuration() + ", Compensation: " + issue.getCustomerCompensation()
+                + ", Loyalty: " + issue.getCustomerLoyaltyStatus());
+        LEGACY_LOG.info("Creating KieSession...");
+        KieSession kieSession = kieBase.newKieSession();
+        try {
+            LEGACY_LOG.info("✓ Created KieSession successfully");
+            LEGACY_LOG.info("Creating FlightIssue object...");
+            LEGACY_LOG.info("✓ FlightIssue created with initial approvedCompensation: " + issue.getApprovedCompensation());
+            LEGACY_LOG.info("Inserting fact into session...");
+            kieSession.insert(issue);
+            LEGACY_LOG.info("✓ Fact inserted");
+            LEGACY_LOG.info("Firing all rules...");
+            int rulesFired = kieSession.fireAllRules(MAX_FIRINGS);
+            LEGACY_LOG.info("✓ Fired " + rulesFired + " rule(s)");
+            LEGACY_LOG.info("Final approvedCompensation: " + issue.getApprovedCompensation());
+            LEGACY_LOG.info("✓ Returning success: Approved compensation of $" + issue.getApprovedCompensation()
+                    + " for flight " + issue.getFlightNumber());
+            return issue.getApprovedCompensation();
+        } finally {
+            kieSession.dispose();
+            LEGACY_LOG.info("✓ KieSession disposed");
+            LEGACY_LOG.info("=== Finished compensation processing ===");
+        }
+    }
+
+    // The endpoint now: one claim.decided event for sampled claims
+    private static double sampled(DecisionLog decisionLog, KieBase kieBase, FlightIssue issue) {
+        long start = System.nanoTime();
+        boolean logged = decisionLog.sample();
+        KieSession kieSession = kieBase.newKieSession();
+        try {
+            kieSession.insert(issue);
+            DecisionTrace trace = logged ? DecisionTrace.begin() : null;
+            int rulesFired;
+            try {
+                rulesFired = kieSession.fireAllRules(MAX_FIRINGS);
+            } finally {
+                if (trace != null) {
+                    DecisionTrace.end();
+                }
+            }
+            if (logged) {
+                decisionLog.claimDecided("default", issue, "approved", rulesFired, List.of(), trace, start);
+            }
+            return issue.getApprovedCompensation();
+        } finally {
+            kieSession.dispose();
+        }
+    }
+
+    private static FlightIssue copy(FlightIssue claim) {
+        return new FlightIssue(claim.getFlightNumber(), claim.getIssueType(), claim.getIssueDuration(),
+                claim.getCustomerCompensation(), claim.getCustomerLoyaltyStatus());
+    }
+
+    private static KieBase compile(String drl) {
+        return new KieHelper().addContent(drl, ResourceType.DRL).build();
+    }
+
+    private static String resource(String path) throws IOException {
+        try (InputStream in = DecisionLoggingBenchmark.class.getResourceAsStream(path)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.acme;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FlightOpsHelperTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void load() throws IOException {
+        Path csv = dir.resolve("export.csv");
+        Path bin = dir.resolve("flight-ops.bin");
+        Files.write(csv, List.of(
+                "UA100,2025-03-01,120",
+                "UA101,2025-03-01,121",
+                "UA102,2025-03-01,179",
+                "UA103,2025-03-01,0",
+                "UA104,2025-03-01,0,true"));
+        FlightOpsLoader.convert(csv, bin, 1 << 16);
+        FlightOpsHelper.swap(FlightOpsIndex.open(bin));
+    }
+
+    @AfterEach
+    void unload() {
+        FlightOpsHelper.swap(null);
+    }
+
+    @Test
+    void roundsRecordedDelaysUp() {
+        // The rules compare against issueDuration > 2, so anything past 120 minutes must count as 3 hours
+        assertEquals(2, FlightOpsHelper.verifiedDelayHours("UA100", DAY));
+        assertEquals(3, FlightOpsHelper.verifiedDelayHours("UA101", DAY));
+        assertEquals(3, FlightOpsHelper.verifiedDelayHours("UA102", DAY));
+        assertEquals(0, FlightOpsHelper.verifiedDelayHours("UA103", DAY));
+    }
+
+    @Test
+    void reportsNoDelayForCancelledOrUnknownFlights() {
+        assertEquals(-1, FlightOpsHelper.verifiedDelayHours("UA104", DAY));
+        assertEquals(-1, FlightOpsHelper.verifiedDelayHours("UA999", DAY));
+        assertEquals(-1, FlightOpsHelper.verifiedDelayHours("UA100", DAY.plusDays(1)));
+    }
+
+    @Test
+    void leavesTheReportedDelayAloneWithoutAFlightDate() {
+        // Another day's flight with the same number must not override what the customer reported
+        assertEquals(-1, FlightOpsHelper.verifiedDelayHours("UA101", null));
+        assertEquals(-1, FlightOpsHelper.verifiedDelayHours("UA103", null));
+    }
+}
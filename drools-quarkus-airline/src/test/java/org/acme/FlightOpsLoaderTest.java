@@ -0,0 +1,158 @@
+package org.acme;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FlightOpsLoaderTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 3, 1);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsCancellationOrLargestDelayForDuplicates() throws IOException {
+        // A chunk size of 2 puts the duplicates in different runs, so the merge combines them
+        FlightOpsIndex index = load(2,
+                "flight_number,flight_date,arrival_delay_minutes,cancelled",
+                "UA333,2025-03-01,120",
+                "UA334,2025-03-01,30",
+                "UA333,2025-03-01,250",
+                "UA334,2025-03-01,0,true",
+                "UA333,2025-03-01,90",
+                "UA334,2025-03-01,45");
+
+        assertEquals(2, index.size());
+        assertEquals(250, index.delayMinutes("UA333", DAY));
+        assertEquals(FlightOpsIndex.CANCELLED, index.delayMinutes("UA334", DAY));
+    }
+
+    @Test
+    void readsCancellationFlags() throws IOException {
+        FlightOpsIndex index = load(
+                "DL10,2025-03-01,0,1",
+                "DL11,2025-03-01,0,Y",
+                "DL12,2025-03-01,15,false",
+                "DL13,2025-03-01,-20");
+
+        assertEquals(FlightOpsIndex.CANCELLED, index.delayMinutes("DL10", DAY));
+        assertEquals(FlightOpsIndex.CANCELLED, index.delayMinutes("dl11", DAY));
+        assertEquals(15, index.delayMinutes("DL12", DAY));
+        // Early arrivals count as no delay
+        assertEquals(0, index.delayMinutes("DL13", DAY));
+    }
+
+    @Test
+    void looksBackOnlyWithinTheWindow() throws IOException {
+        FlightOpsIndex index = load(
+                "BA200,2025-03-01,60",
+                "BA200,2025-03-03,180",
+                "BA201,2025-03-02,10");
+
+        assertEquals(180, index.latestDelayMinutes("BA200", DAY.plusDays(3), 3));
+        assertEquals(180, index.latestDelayMinutes("BA200", DAY.plusDays(2), 0));
+        assertEquals(60, index.latestDelayMinutes("BA200", DAY.plusDays(1), 1));
+        assertEquals(60, index.latestDelayMinutes("BA200", DAY.plusDays(1), 3));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("BA200", DAY.plusDays(6), 2));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("BA200", DAY.minusDays(1), 3));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.delayMinutes("BA200", DAY.plusDays(1)));
+        // BA201's record is never returned for BA200, however far back the window goes
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("BA202", DAY.plusDays(2), 30));
+    }
+
+    @Test
+    void doesNotConfuseFlightNumbersThatArePrefixesOfEachOther() throws IOException {
+        FlightOpsIndex index = load(
+                "UA1,2025-03-01,10",
+                "UA12,2025-03-01,20",
+                "UA12,2025-03-05,25",
+                "UA123,2025-02-20,30");
+
+        assertEquals(10, index.delayMinutes("UA1", DAY));
+        assertEquals(20, index.delayMinutes("UA12", DAY));
+        assertEquals(10, index.latestDelayMinutes("UA1", DAY.plusDays(3), 3));
+        assertEquals(20, index.latestDelayMinutes("UA12", DAY.plusDays(3), 3));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("UA123", DAY, 3));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("UA", DAY.plusDays(10), 30));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("UA1234", DAY.plusDays(10), 30));
+    }
+
+    @Test
+    void findsEveryKeyAcrossBlockBoundaries() throws IOException {
+        // Several 1024-key blocks, written in random order and merged from several runs
+        int flights = 5000;
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < flights; i++) {
+            rows.add(row(i));
+        }
+        Collections.shuffle(rows, new Random(42));
+        FlightOpsIndex index = load(1000, rows.toArray(String[]::new));
+
+        assertEquals(flights, index.size());
+        for (int i = 0; i < flights; i++) {
+            String flight = "BB" + i;
+            LocalDate date = DAY.plusDays(i % 7);
+            assertEquals(i % 1440, index.delayMinutes(flight, date), flight);
+            assertEquals(i % 1440, index.latestDelayMinutes(flight, date.plusDays(1), 1), flight);
+            assertEquals(FlightOpsIndex.NOT_FOUND, index.delayMinutes(flight, date.plusDays(1)), flight);
+            assertEquals(FlightOpsIndex.NOT_FOUND, index.delayMinutes(flight, date.minusDays(1)), flight);
+        }
+        // Below the first key and above the last one
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("0", DAY.plusDays(10), 30));
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.latestDelayMinutes("ZZZZZZZZ", DAY.plusDays(10), 30));
+    }
+
+    @Test
+    void skipsHeaderAndMalformedLines() throws IOException {
+        FlightOpsIndex index = load(
+                "flight_number,flight_date,arrival_delay_minutes",
+                "AA100,2025-03-01,45",
+                "AA101,not-a-date,30",
+                "AA102,2025-03-01,lots",
+                "AA1039999,2025-03-01,30",
+                "AA104",
+                "",
+                "AA105,1999-12-31,30",
+                "AA106,2025-03-01,5");
+
+        assertEquals(2, index.size());
+        assertEquals(45, index.delayMinutes("AA100", DAY));
+        assertEquals(5, index.delayMinutes("AA106", DAY));
+    }
+
+    @Test
+    void writesAnEmptyIndexForAnEmptyExport() throws IOException {
+        FlightOpsIndex index = load("flight_number,flight_date,arrival_delay_minutes");
+
+        assertEquals(0, index.size());
+        assertEquals(FlightOpsIndex.NOT_FOUND, index.delayMinutes("UA1", DAY));
+    }
+
+    private static String row(int i) {
+        return "BB" + i + "," + DAY.plusDays(i % 7) + "," + (i % 1440);
+    }
+
+    private FlightOpsIndex load(String... lines) throws IOException {
+        return load(1 << 16, lines);
+    }
+
+    private FlightOpsIndex load(int chunkSize, String... lines) throws IOException {
+        Path csv = dir.resolve("export.csv");
+        Path bin = dir.resolve("flight-ops.bin");
+        Files.write(csv, List.of(lines));
+        long records = FlightOpsLoader.convert(csv, bin, chunkSize);
+        FlightOpsIndex index = FlightOpsIndex.open(bin);
+        assertEquals(records, index.size());
+        return index;
+    }
+}
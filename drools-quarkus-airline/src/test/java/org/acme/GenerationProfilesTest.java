@@ -0,0 +1,78 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.smallrye.config.PropertiesConfigSource;
+import io.smallrye.config.SmallRyeConfig;
+import io.smallrye.config.SmallRyeConfigBuilder;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GenerationProfilesTest {
+
+    private static final List<String> TURN_STOP = List.of("User:", "Customer:");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MaasRequestEncoder encoder = new MaasRequestEncoder(new ObjectMapper(), registry);
+
+    @Test
+    void shipsStopSequencesForShortPhases() throws IOException {
+        GenerationProfiles profiles = fromShippedConfig();
+
+        assertEquals(TURN_STOP, profiles.profile(ConversationPhase.GREETING).stop());
+        assertEquals(TURN_STOP, profiles.profile(ConversationPhase.SLOT_COLLECTION).stop());
+        assertNull(profiles.profile(ConversationPhase.FREE_FORM).stop());
+    }
+
+    @Test
+    void carriesEachPhaseStopSequencesIntoTheRequest() throws IOException {
+        GenerationProfiles profiles = fromShippedConfig();
+
+        for (ConversationPhase phase : ConversationPhase.values()) {
+            MaasChatRequest request = new MaasChatRequest(conversation());
+            profiles.apply(phase, request);
+            String body = new String(encoder.encode(request).getBytes(), StandardCharsets.UTF_8);
+
+            assertEquals(profiles.profile(phase).stop(), request.stop, phase.key());
+            if (phase == ConversationPhase.FREE_FORM) {
+                assertFalse(body.contains("\"stop\""), body);
+            } else {
+                assertTrue(body.endsWith(",\"stop\":[\"User:\",\"Customer:\"]}"), body);
+            }
+        }
+    }
+
+    // Built from the same keys the CDI constructor reads, without the dev profile
+    private GenerationProfiles fromShippedConfig() throws IOException {
+        SmallRyeConfig config = new SmallRyeConfigBuilder()
+                .withSources(new PropertiesConfigSource(
+                        GenerationProfilesTest.class.getResource("/application.properties")))
+                .build();
+        return new GenerationProfiles(
+                config.getValue("airline.generation.greeting.max-tokens", Integer.class),
+                config.getValue("airline.generation.greeting.temperature", Double.class),
+                config.getValues("airline.generation.greeting.stop", String.class),
+                config.getValue("airline.generation.slot-collection.max-tokens", Integer.class),
+                config.getValue("airline.generation.slot-collection.temperature", Double.class),
+                config.getValues("airline.generation.slot-collection.stop", String.class),
+                config.getValue("airline.generation.free-form.max-tokens", Integer.class),
+                config.getValue("airline.generation.free-form.temperature", Double.class),
+                config.getOptionalValues("airline.generation.free-form.stop", String.class),
+                registry);
+    }
+
+    private static List<MaasChatRequest.Message> conversation() {
+        List<MaasChatRequest.Message> history = new ArrayList<>();
+        history.add(new MaasChatRequest.Message("system", "You are a helpful airline assistant."));
+        history.add(new MaasChatRequest.Message("user", "hi"));
+        return history;
+    }
+}
@@ -0,0 +1,86 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.buffer.Buffer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bytes allocated and CPU time per turn for {@link MaasRequestEncoder} against
+ * serializing the whole request with Jackson, as the REST client did before.
+ *
+ * Each conversation grows by a user and an assistant message per turn and is encoded
+ * once per turn, measured with the current thread's allocation and CPU counters. Run
+ * with {@code mvn test -Dtest=MaasRequestEncoderBenchmark -Dbenchmark=true}; set
+ * {@code -Dbenchmark.conversations=n} and {@code -Dbenchmark.turns=n} to change the load.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MaasRequestEncoderBenchmark {
+
+    private static final MaasChatRequest.Message SYSTEM_MESSAGE = new MaasChatRequest.Message("system",
+            "You are a helpful airline customer service assistant. Help customers with flight delays, "
+            + "cancellations and lost luggage, and collect the details of compensation claims.");
+
+    private interface Encoding {
+        Buffer encode(MaasChatRequest request) throws Exception;
+    }
+
+    @Test
+    void comparePerTurnCost() throws Exception {
+        int conversations = Integer.getInteger("benchmark.conversations", 5_000);
+        int turns = Integer.getInteger("benchmark.turns", 12);
+        ObjectMapper mapper = new ObjectMapper();
+        MaasRequestEncoder encoder = new MaasRequestEncoder(mapper, new SimpleMeterRegistry());
+
+        Encoding jackson = request -> Buffer.buffer(mapper.writeValueAsBytes(request));
+        Encoding fragments = encoder::encode;
+
+        // Warm both paths up before measuring either
+        run(jackson, conversations / 5, turns);
+        run(fragments, conversations / 5, turns);
+
+        System.out.println(report("Jackson, whole request", run(jackson, conversations, turns), conversations * turns));
+        System.out.println(report("cached message fragments", run(fragments, conversations, turns), conversations * turns));
+    }
+
+    // Returns {allocated bytes, CPU nanoseconds} over all turns
+    private static long[] run(Encoding encoding, int conversations, int turns) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = 0;
+        long cpu = 0;
+        long checksum = 0;
+        for (int c = 0; c < conversations; c++) {
+            // Messages are created outside the measured section, as the chat resources do
+            List<MaasChatRequest.Message> history = new ArrayList<>();
+            history.add(SYSTEM_MESSAGE);
+            for (int t = 0; t < turns; t++) {
+                history.add(new MaasChatRequest.Message("user", "Turn " + t + ": my flight UA" + (300 + c % 100)
+                        + " was delayed by " + (t + 2) + " hours, what can I claim?"));
+                MaasChatRequest request = new MaasChatRequest(history);
+                request.temperature = 0.7;
+
+                long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                long cpuBefore = threads.getCurrentThreadCpuTime();
+                checksum += encoding.encode(request).length();
+                cpu += threads.getCurrentThreadCpuTime() - cpuBefore;
+                allocated += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+                history.add(new MaasChatRequest.Message("assistant", "I'm sorry about the delay on turn " + t
+                        + ". For delays over two hours you can request compensation."));
+            }
+        }
+        if (checksum == 0) {
+            throw new IllegalStateException("Nothing was encoded");
+        }
+        return new long[] {allocated, cpu};
+    }
+
+    private static String report(String name, long[] totals, long turns) {
+        return String.format("%-26s %,10d bytes allocated/turn %8.2f us CPU/turn", name,
+                totals[0] / turns, totals[1] / 1_000.0 / turns);
+    }
+}
@@ -0,0 +1,81 @@
+package org.acme;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MaasRequestEncoderTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MaasRequestEncoder encoder = new MaasRequestEncoder(mapper, registry);
+
+    @Test
+    void matchesJacksonForADefaultRequest() throws Exception {
+        MaasChatRequest request = new MaasChatRequest(conversation());
+
+        assertSameAsJackson(request);
+    }
+
+    @Test
+    void matchesJacksonWithEveryOption() throws Exception {
+        MaasChatRequest request = new MaasChatRequest(conversation());
+        request.model = "granite-3-2b-instruct";
+        request.temperature = 0.2;
+        request.stop = List.of("\nUser:", "</s>");
+
+        assertSameAsJackson(request);
+    }
+
+    @Test
+    void matchesJacksonWithoutATokenBudget() throws Exception {
+        MaasChatRequest request = new MaasChatRequest();
+        request.messages = conversation();
+
+        assertSameAsJackson(request);
+    }
+
+    @Test
+    void matchesJacksonForAnEmptyConversation() throws Exception {
+        MaasChatRequest request = new MaasChatRequest(new ArrayList<>());
+        request.model = "llama-3-3-70b-instruct";
+
+        assertSameAsJackson(request);
+    }
+
+    @Test
+    void matchesJacksonOnceFragmentsAreCached() throws Exception {
+        List<MaasChatRequest.Message> history = conversation();
+        encoder.encode(new MaasChatRequest(history));
+        double encodedBefore = registry.counter("maas.request.encoded.bytes").count();
+
+        // The next turn reuses the cached messages and serializes only the new one
+        history.add(new MaasChatRequest.Message("user", "It landed at 23:40, \"about\" 4h late"));
+        MaasChatRequest next = new MaasChatRequest(history);
+        next.temperature = 0.7;
+
+        assertSameAsJackson(next);
+        assertEquals(mapper.writeValueAsBytes(history.get(history.size() - 1)).length,
+                registry.counter("maas.request.encoded.bytes").count() - encodedBefore);
+    }
+
+    private void assertSameAsJackson(MaasChatRequest request) throws Exception {
+        assertArrayEquals(mapper.writeValueAsBytes(request), encoder.encode(request).getBytes());
+        // A second encode reads every message from the cache
+        assertArrayEquals(mapper.writeValueAsBytes(request), encoder.encode(request).getBytes());
+    }
+
+    // Escapes, non-ASCII text and an emoji, so the cached fragments must keep Jackson's encoding
+    private static List<MaasChatRequest.Message> conversation() {
+        List<MaasChatRequest.Message> history = new ArrayList<>();
+        history.add(new MaasChatRequest.Message("system", "You are a helpful airline assistant.\nBe brief."));
+        history.add(new MaasChatRequest.Message("user", "My flight UA333 to Zürich was delayed ✈️"));
+        history.add(new MaasChatRequest.Message("assistant", "Sorry to hear that! Would you like to file a claim?\t🚀"));
+        return history;
+    }
+}